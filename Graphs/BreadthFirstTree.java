@@ -0,0 +1,81 @@
+
+
+/**
+ * The result of a Breadth First Search over a CSRGraph: the depth and BFS parent of every vertex id.
+ * @version 1.0
+ * @see CSRGraph#directionOptimizingBFS(int)
+ *
+ */
+public class BreadthFirstTree {
+
+	/**
+	 * The graph that was searched.
+	 */
+	public final CSRGraph graph;
+
+	/**
+	 * The id of the vertex the search started at.
+	 */
+	public final int source;
+
+	/**
+	 * The number of edges on a shortest path from the source to each vertex, or -1 if the vertex was not reached.
+	 */
+	public final int[] depth;
+
+	/**
+	 * The vertex each vertex was discovered from, or -1 for the source and vertices that were not reached.
+	 */
+	public final int[] parent;
+
+	/**
+	 * Constructs a tree in which only the source has been reached.
+	 * @param graph The graph being searched.
+	 * @param source The id of the starting vertex.
+	 */
+	public BreadthFirstTree(CSRGraph graph, int source){
+		this.graph = graph;
+		this.source = source;
+		this.depth = new int[graph.V];
+		this.parent = new int[graph.V];
+
+		for(int v = 0; v < graph.V; v++){
+			this.depth[v] = -1;
+			this.parent[v] = -1;
+		}
+		this.depth[source] = 0;
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the hop distance from the source to v.
+	 * @param v The id of a vertex.
+	 * @return The distance or -1 if v was not reached.
+	 */
+	public int depthOf(int v){
+		return this.depth[v];
+	}
+
+	/**
+	 * Returns the ids of the vertices on a shortest path from the source to v, both included.
+	 * @param v The id of a vertex.
+	 * @return The path or null if v was not reached.
+	 */
+	public int[] pathTo(int v){
+		if(this.depth[v] == -1) return null;
+
+		int[] path = new int[this.depth[v] + 1];
+		for(int i = path.length - 1; i >= 0; i--){
+			path[i] = v;
+			v = this.parent[v];
+		}
+
+		return path;
+	}
+
+}
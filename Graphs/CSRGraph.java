@@ -0,0 +1,863 @@
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Hashtable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+
+/**
+ * A read only compressed sparse row (CSR) snapshot of a Graph.
+ * The vertices are renumbered 0..V-1 by their position in the adjacency list and the outgoing edges of vertex v are the
+ * slots outOffsets[v]..outOffsets[v+1]-1 of the flat target and weight arrays, with the incoming edges stored the same way.
+ * Algorithms that scan the whole graph run on these int arrays instead of the Vertex and Edge objects and their label Hashtables.
+ * The snapshot does not follow later changes to the graph.
+ * @version 1.0
+ * @see Graph#directionOptimizingBFS(Vertex)
+ * @see CSRGraph#multiSourceBFS(int[])
+ *
+ */
+public class CSRGraph {
+
+	/**
+	 * Switches to bottom-up once the frontier's edges exceed the unexplored edges divided by ALPHA.
+	 */
+	private static final int ALPHA = 14;
+
+	/**
+	 * Switches back to top-down once the frontier holds less than V/BETA vertices.
+	 */
+	private static final int BETA = 24;
+
+	/**
+	 * The number of frontier vertices each task of a parallel BFS level expands.
+	 */
+	private static final int FRONTIER_GRAIN = 256;
+
+	/**
+	 * Contains the number of vertices
+	 */
+	public final int V;
+
+	/**
+	 * Contains the number of edges
+	 */
+	public final int E;
+
+	/**
+	 * The first outgoing edge slot of each vertex, with outOffsets[V] == E.
+	 */
+	public final int[] outOffsets;
+
+	/**
+	 * The destination of the edge in each outgoing slot.
+	 */
+	public final int[] outTargets;
+
+	/**
+	 * The weight of the edge in each outgoing slot.
+	 */
+	public final int[] outWeights;
+
+	/**
+	 * The first incoming edge slot of each vertex, with inOffsets[V] == E.
+	 */
+	public final int[] inOffsets;
+
+	/**
+	 * The origin of the edge in each incoming slot.
+	 */
+	public final int[] inSources;
+
+	/**
+	 * The outgoing slot holding the same edge as each incoming slot.
+	 */
+	public final int[] inSlots;
+
+	/**
+	 * The vertex of each id, or null if the snapshot was not built from a Graph.
+	 */
+	private final Vertex[] vertices;
+
+	/**
+	 * The edge in each outgoing slot, or null if the snapshot was not built from a Graph.
+	 */
+	private final Edge[] edges;
+
+	/**
+	 * The id (value) of each vertex (key).
+	 */
+	private Hashtable<Vertex,Integer> index;
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Takes a snapshot of g. Edges leading to vertices that are not in g are left out.
+	 * Runtime: O( V+E )
+	 * @param g The graph to be copied.
+	 */
+	public CSRGraph(Graph g){
+		if(g == null) throw new NullPointerException("Can't construct graph from null");
+
+		this.V = g.vertices.size();
+		this.index = g.vertexIndices();
+		this.vertices = g.vertices.toArray(new Vertex[0]);
+
+		this.outOffsets = new int[this.V + 1];
+		this.inOffsets = new int[this.V + 1];
+
+		int m = 0;
+		for(int v = 0; v < this.V; v++){
+			for(Edge e : this.vertices[v].out){
+				Integer w = this.index.get(e.b);
+				if(w == null) continue;
+
+				m++;
+				this.inOffsets[w + 1]++;
+			}
+			this.outOffsets[v + 1] = m;
+		}
+
+		this.E = m;
+		this.outTargets = new int[m];
+		this.outWeights = new int[m];
+		this.edges = new Edge[m];
+		this.inSources = new int[m];
+		this.inSlots = new int[m];
+
+		for(int v = 0; v < this.V; v++) this.inOffsets[v + 1] += this.inOffsets[v];
+
+		int[] fill = new int[this.V];
+		int slot = 0;
+		for(int v = 0; v < this.V; v++){
+			for(Edge e : this.vertices[v].out){
+				Integer w = this.index.get(e.b);
+				if(w == null) continue;
+
+				this.outTargets[slot] = w;
+				this.outWeights[slot] = e.weight;
+				this.edges[slot] = e;
+
+				int k = this.inOffsets[w] + fill[w]++;
+				this.inSources[k] = v;
+				this.inSlots[k] = slot;
+				slot++;
+			}
+		}
+	}
+
+	/**
+	 * Wraps already built outgoing arrays and derives the incoming ones. The snapshot has no Vertex or Edge objects behind it,
+	 * so vertex(int) and edge(int) return null and indexOf(Vertex) returns -1.
+	 * Runtime: O( V+E )
+	 * @param V The number of vertices.
+	 * @param outOffsets The V+1 offsets of the outgoing edges.
+	 * @param outTargets The target of each outgoing edge.
+	 * @param outWeights The weight of each outgoing edge.
+	 */
+	CSRGraph(int V, int[] outOffsets, int[] outTargets, int[] outWeights){
+		this.V = V;
+		this.E = outTargets.length;
+		this.outOffsets = outOffsets;
+		this.outTargets = outTargets;
+		this.outWeights = outWeights;
+		this.vertices = null;
+		this.edges = null;
+		this.index = null;
+
+		this.inOffsets = new int[V + 1];
+		this.inSources = new int[this.E];
+		this.inSlots = new int[this.E];
+
+		for(int k = 0; k < this.E; k++) this.inOffsets[outTargets[k] + 1]++;
+		for(int v = 0; v < V; v++) this.inOffsets[v + 1] += this.inOffsets[v];
+
+		int[] fill = new int[V];
+		for(int v = 0; v < V; v++){
+			for(int k = outOffsets[v]; k < outOffsets[v + 1]; k++){
+				int w = outTargets[k];
+				int i = this.inOffsets[w] + fill[w]++;
+				this.inSources[i] = v;
+				this.inSlots[i] = k;
+			}
+		}
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the number of vertices in the graph
+	 */
+	public int numVertices(){
+		return this.V;
+	}
+
+	/**
+	 * Returns the number of edges in the graph
+	 */
+	public int numEdges(){
+		return this.E;
+	}
+
+	/**
+	 * Returns the number of outgoing edges of the vertex.
+	 * @param v The id of the vertex.
+	 */
+	public int outDegree(int v){
+		return this.outOffsets[v + 1] - this.outOffsets[v];
+	}
+
+	/**
+	 * Returns the number of incoming edges of the vertex.
+	 * @param v The id of the vertex.
+	 */
+	public int inDegree(int v){
+		return this.inOffsets[v + 1] - this.inOffsets[v];
+	}
+
+	/**
+	 * Returns the id of the vertex.
+	 * @param v A vertex of the graph the snapshot was taken from.
+	 * @return The id of v or -1 if v is not part of the snapshot.
+	 */
+	public int indexOf(Vertex v){
+		if(this.index == null) return -1;
+
+		Integer i = this.index.get(v);
+		return i == null ? -1 : i;
+	}
+
+	/**
+	 * Returns the vertex of the id.
+	 * @param v The id of the vertex.
+	 * @return The Vertex or null if the snapshot was not built from a Graph.
+	 */
+	public Vertex vertex(int v){
+		return this.vertices == null ? null : this.vertices[v];
+	}
+
+	/**
+	 * Returns the edge stored in the outgoing slot.
+	 * @param slot An outgoing edge slot.
+	 * @return The Edge or null if the snapshot was not built from a Graph.
+	 */
+	public Edge edge(int slot){
+		return this.edges == null ? null : this.edges[slot];
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Runs a direction optimizing Breadth First Search (Beamer, Asanovic and Patterson) from s over the outgoing edges.
+	 * Small frontiers are expanded top-down from a queue. Once the edges leaving the frontier outnumber the edges of the unexplored
+	 * vertices by ALPHA the search switches to bottom-up: every unexplored vertex scans its incoming edges against a bitset of the
+	 * frontier and stops at the first hit. It switches back once the frontier shrinks under V/BETA vertices.
+	 * On low diameter graphs this skips most of the edge inspections of the middle levels.
+	 * @see Graph#directionOptimizingBFS(Vertex)
+	 * @param s The id of the vertex to start the BFS at.
+	 * @return The depth and parent of every vertex.
+	 */
+	public BreadthFirstTree directionOptimizingBFS(int s){
+		if(s < 0 || s >= this.V) throw new IndexOutOfBoundsException("Vertex id "+s+" is not in the graph");
+
+		BreadthFirstTree t = new BreadthFirstTree(this, s);
+		int[] depth = t.depth;
+		int[] parent = t.parent;
+
+		int[] queue = new int[this.V];
+		int[] next = new int[this.V];
+		int queueSize = 1;
+		queue[0] = s;
+		depth[s] = 0;
+
+		long[] frontier = null;
+		long[] nextFrontier = null;
+		boolean bottomUp = false;
+
+		long frontierEdges = this.outDegree(s);
+		long unexploredEdges = this.E - frontierEdges;
+		int frontierSize = 1;
+
+		for(int level = 0; frontierSize > 0; level++){
+
+			//Case: switching direction, the frontier changes representation
+			if(!bottomUp && frontierEdges > unexploredEdges / ALPHA){
+				if(frontier == null){
+					frontier = new long[(this.V + 63) >>> 6];
+					nextFrontier = new long[frontier.length];
+				}
+				for(int i = 0; i < queueSize; i++) frontier[queue[i] >>> 6] |= 1L << queue[i];
+				bottomUp = true;
+			}
+			else if(bottomUp && frontierSize < this.V / BETA){
+				queueSize = 0;
+				for(int w = 0; w < frontier.length; w++){
+					long bits = frontier[w];
+					while(bits != 0){
+						queue[queueSize++] = (w << 6) + Long.numberOfTrailingZeros(bits);
+						bits &= bits - 1;
+					}
+					frontier[w] = 0;
+				}
+				bottomUp = false;
+			}
+
+			frontierSize = 0;
+			frontierEdges = 0;
+
+			if(bottomUp){
+				for(int v = 0; v < this.V; v++){
+					if(depth[v] != -1) continue;
+
+					for(int k = this.inOffsets[v]; k < this.inOffsets[v + 1]; k++){
+						int u = this.inSources[k];
+						if((frontier[u >>> 6] & (1L << u)) != 0){
+							depth[v] = level + 1;
+							parent[v] = u;
+							nextFrontier[v >>> 6] |= 1L << v;
+							frontierSize++;
+							frontierEdges += this.outDegree(v);
+							break;
+						}
+					}
+				}
+
+				long[] tmp = frontier;
+				frontier = nextFrontier;
+				nextFrontier = tmp;
+				for(int w = 0; w < nextFrontier.length; w++) nextFrontier[w] = 0;
+			}
+			else {
+				for(int i = 0; i < queueSize; i++){
+					int u = queue[i];
+					for(int k = this.outOffsets[u]; k < this.outOffsets[u + 1]; k++){
+						int v = this.outTargets[k];
+						if(depth[v] != -1) continue;
+
+						depth[v] = level + 1;
+						parent[v] = u;
+						next[frontierSize++] = v;
+						frontierEdges += this.outDegree(v);
+					}
+				}
+
+				int[] tmp = queue;
+				queue = next;
+				next = tmp;
+				queueSize = frontierSize;
+			}
+
+			unexploredEdges -= frontierEdges;
+		}
+
+		return t;
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Runs a level synchronous Breadth First Search from s on the common ForkJoinPool.
+	 * @see CSRGraph#parallelBFS(ForkJoinPool, int)
+	 * @param s The id of the vertex to start the BFS at.
+	 * @return The depth and parent of every vertex.
+	 */
+	public BreadthFirstTree parallelBFS(int s){
+		return this.parallelBFS(ForkJoinPool.commonPool(), s);
+	}
+
+	/**
+	 * Runs a level synchronous Breadth First Search from s on the given pool.
+	 * Each level's frontier is split into chunks that are expanded in parallel; a vertex is claimed by the thread whose
+	 * compare-and-set on its depth succeeds, and every chunk collects what it claimed in its own buffer which is appended to the
+	 * next frontier once, before the level ends.
+	 * @see CSRGraph#directionOptimizingBFS(int)
+	 * @param pool The pool to run the levels on.
+	 * @param s The id of the vertex to start the BFS at.
+	 * @return The depth and parent of every vertex.
+	 */
+	public BreadthFirstTree parallelBFS(ForkJoinPool pool, int s){
+		if(s < 0 || s >= this.V) throw new IndexOutOfBoundsException("Vertex id "+s+" is not in the graph");
+
+		BreadthFirstTree t = new BreadthFirstTree(this, s);
+		AtomicIntegerArray depth = newDepths();
+
+		this.parallelSearch(pool, s, -1, depth, t.parent, null);
+
+		for(int v = 0; v < this.V; v++) t.depth[v] = depth.get(v);
+		return t;
+	}
+
+	/**
+	 * Runs parallel Breadth First Searches until every vertex is reached, each from the first vertex not reached so far.
+	 * @see Graph#parallelBFS()
+	 * @param pool The pool to run the levels on.
+	 * @return For each search the ids of the vertices of each level.
+	 */
+	public ArrayList<ArrayList<int[]>> parallelBFSLevels(ForkJoinPool pool){
+		ArrayList<ArrayList<int[]>> searches = new ArrayList<ArrayList<int[]>>();
+		AtomicIntegerArray depth = newDepths();
+		int[] parent = new int[this.V];
+
+		for(int v = 0; v < this.V; v++){
+			if(depth.get(v) != -1) continue;
+
+			ArrayList<int[]> levels = new ArrayList<int[]>();
+			this.parallelSearch(pool, v, -1, depth, parent, levels);
+			searches.add(levels);
+		}
+
+		return searches;
+	}
+
+	/**
+	 * Finds the hop distance from s to v with a parallel Breadth First Search that stops at the level reaching v.
+	 * @see Graph#parallelBFSShortestPath(Vertex, Vertex)
+	 * @param pool The pool to run the levels on.
+	 * @param s The id of the starting vertex.
+	 * @param v The id of the vertex whose distance from s has to be determined.
+	 * @return Cases: if s is v : 0; if s is isolated from v: -1; otherwise : distance from s to v.
+	 */
+	public int parallelBFSShortestPath(ForkJoinPool pool, int s, int v){
+		if(s == v) return 0;
+
+		AtomicIntegerArray depth = newDepths();
+		this.parallelSearch(pool, s, v, depth, new int[this.V], null);
+
+		return depth.get(v);
+	}
+
+	private AtomicIntegerArray newDepths(){
+		AtomicIntegerArray depth = new AtomicIntegerArray(this.V);
+		for(int v = 0; v < this.V; v++) depth.set(v, -1);
+		return depth;
+	}
+
+	/**
+	 * The level loop of the parallel searches. Vertices whose depth is not -1 are never claimed again.
+	 * @param target Stops after the level that reaches this id; -1 to search the whole component.
+	 * @param levels If not null receives a copy of the ids of the vertices of each level.
+	 */
+	private void parallelSearch(ForkJoinPool pool, int s, final int target,
+			final AtomicIntegerArray depth, final int[] parent, ArrayList<int[]> levels){
+
+		depth.set(s, 0);
+		parent[s] = -1;
+
+		int[] frontier = new int[this.V];
+		int[] next = new int[this.V];
+		int frontierSize = 1;
+		frontier[0] = s;
+
+		final AtomicInteger nextSize = new AtomicInteger();
+
+		for(int level = 0; frontierSize > 0; level++){
+			if(levels != null) levels.add(Arrays.copyOf(frontier, frontierSize));
+			if(target != -1 && depth.get(target) != -1) break;
+
+			final int[] current = frontier;
+			final int[] discovered = next;
+			final int nextDepth = level + 1;
+			nextSize.set(0);
+
+			ParallelRange.run(pool, frontierSize, FRONTIER_GRAIN, new ParallelRange.Body() {
+				public void run(int lo, int hi) {
+					int[] claimed = new int[2*(hi - lo)];
+					int count = 0;
+
+					for(int i = lo; i < hi; i++){
+						int u = current[i];
+						for(int k = outOffsets[u]; k < outOffsets[u + 1]; k++){
+							int w = outTargets[k];
+							if(depth.get(w) != -1 || !depth.compareAndSet(w, -1, nextDepth)) continue;
+
+							parent[w] = u;
+							if(count == claimed.length) claimed = Arrays.copyOf(claimed, 2*count);
+							claimed[count++] = w;
+						}
+					}
+
+					if(count > 0) System.arraycopy(claimed, 0, discovered, nextSize.getAndAdd(count), count);
+				}
+			});
+
+			next = frontier;
+			frontier = discovered;
+			frontierSize = nextSize.get();
+		}
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Runs a Breadth First Search from every source at once with the multi-source bit-parallel BFS (MS-BFS) of Then et al.
+	 * Up to 64 sources share one traversal: each vertex holds a long whose bit i tells whether source i has seen it or is visiting it,
+	 * so a single scan of an edge advances all 64 searches. Batches of 64 sources run in parallel on the common ForkJoinPool.
+	 * @see CSRGraph#closenessCentrality(int[])
+	 * @param sources The ids of the vertices to start a BFS at.
+	 * @return For each source (in the order given) the hop distance to every vertex, or -1 if the vertex can't be reached.
+	 */
+	public int[][] multiSourceBFS(final int[] sources){
+		final int[][] depth = new int[sources.length][];
+
+		ParallelRange.run(ForkJoinPool.commonPool(), (sources.length + 63) >>> 6, 1, new ParallelRange.Body() {
+			public void run(int lo, int hi) {
+				for(int b = lo; b < hi; b++){
+					final int first = b << 6;
+					final int count = Math.min(64, sources.length - first);
+
+					for(int i = 0; i < count; i++){
+						depth[first + i] = new int[V];
+						Arrays.fill(depth[first + i], -1);
+					}
+
+					bitParallelSearch(sources, first, count, new BatchVisitor() {
+						public void reached(int v, long sourceBits, int level) {
+							while(sourceBits != 0){
+								depth[first + Long.numberOfTrailingZeros(sourceBits)][v] = level;
+								sourceBits &= sourceBits - 1;
+							}
+						}
+					});
+				}
+			}
+		});
+
+		return depth;
+	}
+
+	/**
+	 * Computes the closeness centrality of every source with batched MS-BFS traversals, without storing any distances.
+	 * The closeness of s is (r-1) / (sum of the hop distances from s), where r is the number of vertices s reaches.
+	 * @see CSRGraph#multiSourceBFS(int[])
+	 * @param sources The ids of the vertices whose closeness is wanted.
+	 * @return The closeness of each source (in the order given), 0 for a source that reaches no other vertex.
+	 */
+	public double[] closenessCentrality(final int[] sources){
+		final long[] distanceSums = new long[sources.length];
+		final int[] reached = new int[sources.length];
+
+		ParallelRange.run(ForkJoinPool.commonPool(), (sources.length + 63) >>> 6, 1, new ParallelRange.Body() {
+			public void run(int lo, int hi) {
+				for(int b = lo; b < hi; b++){
+					final int first = b << 6;
+					int count = Math.min(64, sources.length - first);
+
+					bitParallelSearch(sources, first, count, new BatchVisitor() {
+						public void reached(int v, long sourceBits, int level) {
+							while(sourceBits != 0){
+								int i = first + Long.numberOfTrailingZeros(sourceBits);
+								distanceSums[i] += level;
+								reached[i]++;
+								sourceBits &= sourceBits - 1;
+							}
+						}
+					});
+				}
+			}
+		});
+
+		double[] closeness = new double[sources.length];
+		for(int i = 0; i < sources.length; i++)
+			if(distanceSums[i] > 0) closeness[i] = (reached[i] - 1) / (double)distanceSums[i];
+
+		return closeness;
+	}
+
+	/**
+	 * Receives the vertices newly reached by a batch of bit-parallel searches.
+	 */
+	private interface BatchVisitor {
+		/**
+		 * @param v The id of the vertex reached.
+		 * @param sourceBits Bit i is set if source first+i reached v at this level.
+		 * @param level The hop distance of v from those sources.
+		 */
+		public void reached(int v, long sourceBits, int level);
+	}
+
+	/**
+	 * Runs the searches from sources[first..first+count-1], count being at most 64, over the outgoing edges.
+	 */
+	private void bitParallelSearch(int[] sources, int first, int count, BatchVisitor visitor){
+		long[] seen = new long[this.V];
+		long[] visit = new long[this.V];
+		long[] visitNext = new long[this.V];
+
+		for(int i = 0; i < count; i++){
+			int s = sources[first + i];
+			if(s < 0 || s >= this.V) throw new IndexOutOfBoundsException("Vertex id "+s+" is not in the graph");
+
+			seen[s] |= 1L << i;
+			visit[s] |= 1L << i;
+		}
+
+		for(int v = 0; v < this.V; v++)
+			if(visit[v] != 0) visitor.reached(v, visit[v], 0);
+
+		boolean active = count > 0;
+		for(int level = 1; active; level++){
+
+			// Every edge is scanned once for all the searches currently visiting its origin
+			for(int u = 0; u < this.V; u++){
+				long bits = visit[u];
+				if(bits == 0) continue;
+
+				for(int k = this.outOffsets[u]; k < this.outOffsets[u + 1]; k++)
+					visitNext[this.outTargets[k]] |= bits;
+			}
+
+			active = false;
+			for(int v = 0; v < this.V; v++){
+				long bits = visitNext[v] & ~seen[v];
+				visitNext[v] = 0;
+				visit[v] = bits;
+
+				if(bits != 0){
+					seen[v] |= bits;
+					visitor.reached(v, bits, level);
+					active = true;
+				}
+			}
+		}
+	}
+
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Computes the shortest path length from every source to every target.
+	 * One search is run per row or per column, whichever is fewer: backward searches from the targets when there are no more
+	 * targets than sources, forward searches from the sources otherwise. Each search stops once it has settled every vertex on the
+	 * other side of the table, and the searches run in parallel on the common ForkJoinPool with one heap and distance array per worker.
+	 * @see Graph#distanceTable(Vertex[], Vertex[])
+	 * @param sources The ids of the row vertices.
+	 * @param targets The ids of the column vertices.
+	 * @return table[i][j] is the distance from sources[i] to targets[j], or -1 if targets[j] can't be reached.
+	 * @throws DijkstraNegativeWeightEdge If the graph has an edge with a negative weight.
+	 */
+	public int[][] distanceTable(final int[] sources, final int[] targets) throws DijkstraNegativeWeightEdge{
+		for(int k = 0; k < this.E; k++)
+			if(this.outWeights[k] < 0) throw new DijkstraNegativeWeightEdge("Graph contains negative weight edge");
+		for(int s : sources) if(s < 0 || s >= this.V) throw new IndexOutOfBoundsException("Vertex id "+s+" is not in the graph");
+		for(int t : targets) if(t < 0 || t >= this.V) throw new IndexOutOfBoundsException("Vertex id "+t+" is not in the graph");
+
+		final int[][] table = new int[sources.length][targets.length];
+		for(int[] row : table) Arrays.fill(row, -1);
+
+		final boolean backward = targets.length <= sources.length;
+		final int[] from = backward ? targets : sources;
+		final int[] to = backward ? sources : targets;
+
+		// The slots of the table each vertex on the far side fills, several if it is listed more than once
+		final int[][] slots = new int[this.V][];
+		for(int i = 0; i < to.length; i++){
+			int[] old = slots[to[i]];
+			int[] now = old == null ? new int[1] : Arrays.copyOf(old, old.length + 1);
+			now[now.length - 1] = i;
+			slots[to[i]] = now;
+		}
+
+		int distinct = 0;
+		for(int v = 0; v < this.V; v++) if(slots[v] != null) distinct++;
+		final int wanted = distinct;
+
+		ParallelRange.run(ForkJoinPool.commonPool(), from.length, 1, new ParallelRange.Body() {
+			public void run(int lo, int hi) {
+				int[] dist = new int[V];
+				Arrays.fill(dist, -1);
+				IndexedMinHeap qp = new IndexedMinHeap(V);
+				int[] touched = new int[V];
+
+				for(int i = lo; i < hi; i++){
+					int n = dijkstra(from[i], backward, slots, wanted, dist, qp, touched);
+
+					for(int j = 0; j < n; j++){
+						int v = touched[j];
+						if(slots[v] != null && dist[v] >= 0)
+							for(int c : slots[v]){
+								if(backward) table[c][i] = dist[v];
+								else table[i][c] = dist[v];
+							}
+						dist[v] = -1;
+					}
+					qp.clear();
+				}
+			}
+		});
+
+		return table;
+	}
+
+	/**
+	 * Runs Dijkstra's search from s over the outgoing edges, or the incoming ones if backward, until every vertex with a
+	 * non null stop entry has been settled. Settled vertices get their distance in dist, the others that were reached are left
+	 * at -2 so that the caller can reset everything listed in touched.
+	 * @return The number of vertices listed in touched.
+	 */
+	private int dijkstra(int s, boolean backward, int[][] stop, int count, int[] dist, IndexedMinHeap qp, int[] touched){
+		int n = 0;
+		int settled = 0;
+
+		dist[s] = -2;
+		touched[n++] = s;
+		qp.insert(s, 0);
+
+		while(!qp.isEmpty() && settled < count){
+			int du = qp.keyOf(qp.peek());
+			int u = qp.poll();
+			dist[u] = du;
+			if(stop[u] != null) settled++;
+
+			int lo = backward ? this.inOffsets[u] : this.outOffsets[u];
+			int hi = backward ? this.inOffsets[u + 1] : this.outOffsets[u + 1];
+
+			for(int k = lo; k < hi; k++){
+				int v = backward ? this.inSources[k] : this.outTargets[k];
+				long r = (long)du + this.outWeights[backward ? this.inSlots[k] : k];
+				if(r > Integer.MAX_VALUE) continue;
+
+				if(dist[v] == -1){
+					dist[v] = -2;
+					touched[n++] = v;
+					qp.insert(v, (int)r);
+				}
+				else if(qp.contains(v)) qp.decreaseKey(v, (int)r);
+			}
+		}
+
+		return n;
+	}
+
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Runs Dijkstra's shortestpath from s and returns the distances and parent edges as a ShortestPathResult.
+	 * @see CSRGraph#DijkstraShortestPaths(int, int[], int[])
+	 * @param s The id of the vertex the paths start at.
+	 * @return ShortestPathResult
+	 * @throws DijkstraNegativeWeightEdge If the search meets an edge with a negative weight.
+	 */
+	public ShortestPathResult DijkstraShortestPathResult(int s) throws DijkstraNegativeWeightEdge{
+		ShortestPathResult result = new ShortestPathResult(this, s);
+		this.DijkstraShortestPaths(s, result.dist, result.parentEdge);
+		return result;
+	}
+
+	/**
+	 * Runs BellmanFords shortestpath from s and returns the distances and parent edges as a ShortestPathResult.
+	 * @see CSRGraph#BellmanFordShortestPaths(int, int[], int[])
+	 * @param s The id of the vertex the paths start at.
+	 * @return ShortestPathResult
+	 */
+	public ShortestPathResult BellmanFordShortestPathResult(int s){
+		ShortestPathResult result = new ShortestPathResult(this, s);
+		this.BellmanFordShortestPaths(s, result.dist, result.parentEdge);
+		return result;
+	}
+
+	/**
+	 * Runs Dijkstra's shortestpath from s over the outgoing edges with an IndexedMinHeap, in O(E log V).
+	 * @see CSRGraph#BellmanFordShortestPaths(int, int[], int[])
+	 * @param s The id of the vertex the paths start at.
+	 * @param dist Receives the length of the shortest path to every vertex, Integer.MAX_VALUE if it can't be reached.
+	 * @param parentEdge Receives the slot of the last edge on the shortest path to every vertex, -1 for s and the vertices it can't reach.
+	 * @throws DijkstraNegativeWeightEdge If the search meets an edge with a negative weight.
+	 */
+	public void DijkstraShortestPaths(int s, int[] dist, int[] parentEdge) throws DijkstraNegativeWeightEdge{
+		if(s < 0 || s >= this.V) throw new IndexOutOfBoundsException("Vertex id "+s+" is not in the graph");
+
+		Arrays.fill(dist, 0, this.V, Integer.MAX_VALUE);
+		Arrays.fill(parentEdge, 0, this.V, -1);
+		boolean[] settled = new boolean[this.V];
+
+		IndexedMinHeap qp = new IndexedMinHeap(this.V);
+		dist[s] = 0;
+		qp.insert(s, 0);
+
+		while(!qp.isEmpty()){
+			int u = qp.poll();
+			settled[u] = true;
+
+			for(int k = this.outOffsets[u]; k < this.outOffsets[u + 1]; k++){
+				if(this.outWeights[k] < 0) throw new DijkstraNegativeWeightEdge("Graph contains negative weight edge");
+
+				int v = this.outTargets[k];
+				long r = (long)dist[u] + this.outWeights[k];
+				if(settled[v] || r >= dist[v]) continue;
+
+				dist[v] = (int)r;
+				parentEdge[v] = k;
+				if(qp.contains(v)) qp.decreaseKey(v, (int)r);
+				else qp.insert(v, (int)r);
+			}
+		}
+	}
+
+	/**
+	 * Runs BellmanFords shortestpath from s over the outgoing edges. Every round relaxes all the edges and the rounds stop
+	 * as soon as one changes nothing, after V-1 rounds at most.
+	 * Negative weights are allowed; with a negative cycle reachable from s the result is whatever V-1 rounds leave behind.
+	 * @see CSRGraph#DijkstraShortestPaths(int, int[], int[])
+	 * @param s The id of the vertex the paths start at.
+	 * @param dist Receives the length of the shortest path to every vertex, Integer.MAX_VALUE if it can't be reached.
+	 * @param parentEdge Receives the slot of the last edge on the shortest path to every vertex, -1 for s and the vertices it can't reach.
+	 */
+	public void BellmanFordShortestPaths(int s, int[] dist, int[] parentEdge){
+		if(s < 0 || s >= this.V) throw new IndexOutOfBoundsException("Vertex id "+s+" is not in the graph");
+
+		Arrays.fill(dist, 0, this.V, Integer.MAX_VALUE);
+		Arrays.fill(parentEdge, 0, this.V, -1);
+		dist[s] = 0;
+
+		boolean changed = true;
+		for(int i = 1; i < this.V && changed; i++){
+			changed = false;
+
+			for(int u = 0; u < this.V; u++){
+				if(dist[u] == Integer.MAX_VALUE) continue;
+
+				for(int k = this.outOffsets[u]; k < this.outOffsets[u + 1]; k++){
+					int v = this.outTargets[k];
+					long r = (long)dist[u] + this.outWeights[k];
+
+					if(r < dist[v] && r > Integer.MIN_VALUE){
+						dist[v] = (int)r;
+						parentEdge[v] = k;
+						changed = true;
+					}
+				}
+			}
+		}
+	}
+
+}
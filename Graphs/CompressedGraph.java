@@ -0,0 +1,356 @@
+
+
+import java.util.Arrays;
+
+
+/**
+ * A read only graph whose adjacency is compressed in the manner of WebGraph.
+ * The targets of each vertex are sorted and stored in one byte stream as gaps: the first one relative to the vertex itself
+ * (zig-zag encoded, since it may be smaller) and every other one relative to the target before it, each gap as a varint of 7 bits per byte.
+ * Neighbouring ids give small gaps, so most edges take one byte instead of an Edge object and two list slots, or 4 bytes in a CSRGraph.
+ * Each list starts with its length and an int per vertex indexes the lists. Weights are not kept.
+ * @version 1.0
+ * @see CompressedGraph.Successors
+ * @see CSRGraph
+ *
+ */
+public class CompressedGraph {
+
+	/**
+	 * Contains the number of vertices
+	 */
+	public final int V;
+
+	/**
+	 * Contains the number of edges
+	 */
+	public final int E;
+
+	/**
+	 * The position in data where the list of each vertex starts, and the end of the stream at V.
+	 */
+	private final int[] offsets;
+
+	/**
+	 * The encoded successor lists.
+	 */
+	private final byte[] data;
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Compresses the outgoing edges of the snapshot.
+	 * Runtime: O( E log E )
+	 * @param g The graph to be compressed.
+	 */
+	public CompressedGraph(CSRGraph g){
+		if(g == null) throw new NullPointerException("Can't construct graph from null");
+
+		this.V = g.V;
+		this.E = g.E;
+		this.offsets = new int[g.V + 1];
+
+		byte[] out = new byte[Math.max(16, g.E + g.V)];
+		int n = 0;
+		int[] list = new int[16];
+
+		for(int v = 0; v < g.V; v++){
+			this.offsets[v] = n;
+
+			int d = g.outDegree(v);
+			if(d > list.length) list = new int[Math.max(d, 2*list.length)];
+			System.arraycopy(g.outTargets, g.outOffsets[v], list, 0, d);
+			Arrays.sort(list, 0, d);
+
+			// A list takes at most 5 bytes per gap plus its length
+			if(n + 5L*(d + 1) > out.length){
+				long grow = Math.max(2L*out.length, n + 5L*(d + 1));
+				if(grow > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("Compressed graph exceeds 2 GB");
+				out = Arrays.copyOf(out, (int)grow);
+			}
+
+			n = CompressedGraph.putVarint(out, n, d);
+			for(int i = 0; i < d; i++){
+				int gap = i == 0 ? (((list[0] - v) << 1) ^ ((list[0] - v) >> 31)) : list[i] - list[i - 1];
+				n = CompressedGraph.putVarint(out, n, gap);
+			}
+		}
+
+		this.offsets[g.V] = n;
+		this.data = Arrays.copyOf(out, n);
+	}
+
+	/**
+	 * Compresses the outgoing edges of the graph. Vertex ids are the positions in the adjacency list.
+	 * @param g The graph to be compressed.
+	 */
+	public CompressedGraph(Graph g){
+		this(new CSRGraph(g));
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the number of vertices in the graph
+	 */
+	public int numVertices(){
+		return this.V;
+	}
+
+	/**
+	 * Returns the number of edges in the graph
+	 */
+	public int numEdges(){
+		return this.E;
+	}
+
+	/**
+	 * Returns the number of outgoing edges of the vertex.
+	 * @param v The id of the vertex.
+	 */
+	public int outDegree(int v){
+		int p = this.offsets[v];
+		int d = 0;
+
+		for(int shift = 0; ; shift += 7){
+			byte b = this.data[p++];
+			d |= (b & 0x7f) << shift;
+			if(b >= 0) return d;
+		}
+	}
+
+	/**
+	 * Returns an iterator over the sorted targets of v.
+	 * @param v The id of the vertex.
+	 * @return Successors
+	 */
+	public Successors successors(int v){
+		return new Successors().reset(v);
+	}
+
+	/**
+	 * Returns the number of bytes of the compressed lists and their index.
+	 * @return long
+	 */
+	public long bytes(){
+		return this.data.length + 4L*this.offsets.length;
+	}
+
+	/**
+	 * Returns the average number of bits an edge takes, index included.
+	 * @return double
+	 */
+	public double bitsPerEdge(){
+		return this.E == 0 ? 0 : 8.0*this.bytes() / this.E;
+	}
+
+	/**
+	 * Returns a string with the number of vertices, edges and bits per edge boxed up in brackets.
+	 * @return String
+	 */
+	public String toString(){
+		return "CompressedGraph: [V="+this.V+"][E="+this.E+"][bits/E="+this.bitsPerEdge()+"]";
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Runs a Breadth First Search from s over the outgoing edges, decoding every list once.
+	 * @param s The id of the vertex to start the BFS at.
+	 * @return The hop distance of every vertex from s, or -1 if the vertex can't be reached.
+	 */
+	public int[] BFS(int s){
+		if(s < 0 || s >= this.V) throw new IndexOutOfBoundsException("Vertex id "+s+" is not in the graph");
+
+		int[] depth = new int[this.V];
+		int[] queue = new int[this.V];
+		Arrays.fill(depth, -1);
+
+		depth[s] = 0;
+		queue[0] = s;
+		int head = 0, tail = 1;
+		Successors it = new Successors();
+
+		while(head < tail){
+			int u = queue[head++];
+
+			for(it.reset(u); it.hasNext(); ){
+				int v = it.next();
+				if(depth[v] != -1) continue;
+
+				depth[v] = depth[u] + 1;
+				queue[tail++] = v;
+			}
+		}
+
+		return depth;
+	}
+
+	/**
+	 * Runs a Depth First Search from s over the outgoing edges. The recursion is replaced by a stack of iterators, one per
+	 * level, so a list is decoded once however deep the search goes.
+	 * @param s The id of the vertex to start the DFS at.
+	 * @return The ids of the vertices reached from s, in the order they were discovered.
+	 */
+	public int[] DFS(int s){
+		if(s < 0 || s >= this.V) throw new IndexOutOfBoundsException("Vertex id "+s+" is not in the graph");
+
+		boolean[] seen = new boolean[this.V];
+		int[] order = new int[this.V];
+		int n = 0;
+
+		Successors[] stack = new Successors[16];
+		int top = 0;
+
+		seen[s] = true;
+		order[n++] = s;
+		stack[top++] = new Successors().reset(s);
+
+		while(top > 0){
+			Successors it = stack[top - 1];
+			if(!it.hasNext()){
+				top--;
+				continue;
+			}
+
+			int v = it.next();
+			if(seen[v]) continue;
+
+			seen[v] = true;
+			order[n++] = v;
+
+			if(top == stack.length) stack = Arrays.copyOf(stack, 2*top);
+			if(stack[top] == null) stack[top] = new Successors();
+			stack[top++].reset(v);
+		}
+
+		return Arrays.copyOf(order, n);
+	}
+
+	/**
+	 * Finds the connected components, treating every edge as undirected, with a union find over one pass of the lists.
+	 * @return The component of every vertex, numbered 0, 1, ... in the order of their smallest vertex.
+	 */
+	public int[] connectedComponents(){
+		int[] parent = new int[this.V];
+		for(int v = 0; v < this.V; v++) parent[v] = v;
+
+		Successors it = new Successors();
+		for(int u = 0; u < this.V; u++){
+			for(it.reset(u); it.hasNext(); ){
+				int a = CompressedGraph.find(parent, u);
+				int b = CompressedGraph.find(parent, it.next());
+
+				// The smaller root wins so every root is the smallest vertex of its component
+				if(a < b) parent[b] = a;
+				else if(b < a) parent[a] = b;
+			}
+		}
+
+		int[] component = new int[this.V];
+		int c = 0;
+		for(int v = 0; v < this.V; v++){
+			int r = CompressedGraph.find(parent, v);
+			component[v] = r == v ? c++ : component[r];
+		}
+
+		return component;
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Decodes the successor list of one vertex at a time. Resetting an iterator to another vertex allocates nothing,
+	 * so a traversal needs a single one.
+	 */
+	public final class Successors {
+
+		private int position;
+		private int remaining;
+		private int last;
+		private boolean first;
+
+		/**
+		 * Positions the iterator at the start of the list of v.
+		 * @param v The id of the vertex.
+		 * @return The iterator itself.
+		 */
+		public Successors reset(int v){
+			this.position = offsets[v];
+			this.remaining = this.varint();
+			this.last = v;
+			this.first = true;
+			return this;
+		}
+
+		/**
+		 * Determines whether the list has more targets.
+		 * @return boolean
+		 */
+		public boolean hasNext(){
+			return this.remaining > 0;
+		}
+
+		/**
+		 * Returns the next target, in increasing order.
+		 * @return int
+		 */
+		public int next(){
+			if(this.remaining == 0) throw new IllegalStateException("No more successors");
+			this.remaining--;
+
+			int gap = this.varint();
+			if(this.first){
+				this.first = false;
+				this.last += (gap >>> 1) ^ -(gap & 1);
+			}
+			else this.last += gap;
+
+			return this.last;
+		}
+
+		private int varint(){
+			int value = 0;
+
+			for(int shift = 0; ; shift += 7){
+				byte b = data[this.position++];
+				value |= (b & 0x7f) << shift;
+				if(b >= 0) return value;
+			}
+		}
+	}
+
+	private static int putVarint(byte[] out, int n, int value){
+		while((value & ~0x7f) != 0){
+			out[n++] = (byte)((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out[n++] = (byte)value;
+		return n;
+	}
+
+	private static int find(int[] parent, int v){
+		while(parent[v] != v){
+			parent[v] = parent[parent[v]];
+			v = parent[v];
+		}
+		return v;
+	}
+
+}
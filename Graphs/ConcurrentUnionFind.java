@@ -0,0 +1,93 @@
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+
+/**
+ * A lock free union-find over the ids 0..n-1.
+ * Roots are linked with a compare-and-set, always the larger root under the smaller one so concurrent unions can't form a cycle,
+ * and find halves the path it walks. Any number of threads may call find, union and sameSet at the same time.
+ * @version 1.0
+ * @see Graph#aBoruvkaMinimumSpanningTree(boolean)
+ *
+ */
+public class ConcurrentUnionFind {
+
+	/**
+	 * The parent of each id. Roots are their own parent.
+	 */
+	private final AtomicIntegerArray parent;
+
+	/**
+	 * Constructs n singleton sets.
+	 * @param n The number of ids.
+	 */
+	public ConcurrentUnionFind(int n){
+		this.parent = new AtomicIntegerArray(n);
+		for(int i = 0; i < n; i++) this.parent.set(i, i);
+	}
+
+	/**
+	 * Returns the number of ids.
+	 */
+	public int size(){
+		return this.parent.length();
+	}
+
+	///////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the root of the set containing x.
+	 * @param x An id.
+	 * @return int
+	 */
+	public int find(int x){
+		while(true){
+			int p = this.parent.get(x);
+			if(p == x) return x;
+
+			int gp = this.parent.get(p);
+			if(p != gp) this.parent.compareAndSet(x, p, gp);
+			x = gp;
+		}
+	}
+
+	/**
+	 * Determines whether a and b are in the same set.
+	 * @return boolean
+	 */
+	public boolean sameSet(int a, int b){
+		while(true){
+			a = this.find(a);
+			b = this.find(b);
+			if(a == b) return true;
+
+			//Case: a is still a root so the answer was not overtaken by a concurrent union
+			if(this.parent.get(a) == a) return false;
+		}
+	}
+
+	/**
+	 * Merges the sets containing a and b.
+	 * @return True if the call merged two different sets; false if they were already one.
+	 */
+	public boolean union(int a, int b){
+		while(true){
+			a = this.find(a);
+			b = this.find(b);
+			if(a == b) return false;
+
+			if(a < b){
+				int t = a;
+				a = b;
+				b = t;
+			}
+
+			if(this.parent.compareAndSet(a, a, b)) return true;
+		}
+	}
+
+}
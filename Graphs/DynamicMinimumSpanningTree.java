@@ -0,0 +1,332 @@
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Hashtable;
+
+
+/**
+ * A minimum spanning forest that keeps itself up to date as its graph changes, instead of running
+ * aKruskalMinimumSpanningTree again after every change.
+ * The forest is stored in a LinkCutTree in which every tree edge is a node holding its weight, so the heaviest edge on the
+ * tree path between two vertices is found in O(log V). An inserted edge, or a lowered weight, then replaces that heaviest edge if it is lighter.
+ * Removing a tree edge or raising its weight needs the lightest edge reconnecting the two halves, which is found by walking
+ * the smaller half along the tree edges and scanning only the edges of its vertices; every other update is O(log V).
+ * Edges are treated as undirected, as in aKruskalMinimumSpanningTree.
+ * @version 1.0
+ * @see Graph#aKruskalMinimumSpanningTree(boolean)
+ * @see Graph#setWeight(Edge, int)
+ * @see LinkCutTree
+ *
+ */
+public class DynamicMinimumSpanningTree implements GraphListener {
+
+	/**
+	 * The graph the forest spans.
+	 */
+	private Graph graph;
+
+	/**
+	 * Whether tree() adds the conjugate of every tree edge.
+	 */
+	private boolean unDirectedGraph;
+
+	/**
+	 * The forest itself. Vertices and tree edges are both nodes.
+	 */
+	private LinkCutTree forest;
+
+	/**
+	 * The forest node (value) of each vertex (key).
+	 */
+	private Hashtable<Vertex,Integer> vertexNodes;
+
+	/**
+	 * The forest node (value) of each tree edge (key).
+	 */
+	private Hashtable<Edge,Integer> treeNodes;
+
+	/**
+	 * The tree edge each forest node stands for, or null for vertex nodes.
+	 */
+	private Edge[] nodeEdges;
+
+	/**
+	 * The total weight of the tree edges.
+	 */
+	private long weight;
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Builds the minimum spanning forest of g and registers itself as a listener of g.
+	 * @see DynamicMinimumSpanningTree#detach()
+	 * @param g The graph to be spanned.
+	 * @param unDirectedGraph True if the graph is undirected; false otherwise.
+	 */
+	public DynamicMinimumSpanningTree(Graph g, boolean unDirectedGraph){
+		if(g == null) throw new NullPointerException("Can't span a null graph");
+
+		this.graph = g;
+		this.unDirectedGraph = unDirectedGraph;
+		this.forest = new LinkCutTree(g.vertices.size() + g.vertices.size());
+		this.vertexNodes = new Hashtable<Vertex,Integer>();
+		this.treeNodes = new Hashtable<Edge,Integer>();
+		this.nodeEdges = new Edge[Math.max(16, 2*g.vertices.size())];
+		this.weight = 0;
+
+		for(Vertex v : g.vertices) this.nodeOf(v);
+
+		// Offered lightest first no edge ever displaces another, which is plain Kruskal
+		ArrayList<Edge> sorted = new ArrayList<Edge>(g.edges);
+		Collections.sort(sorted, new Comparator<Edge>() {
+			public int compare(Edge e1, Edge e2) {
+				if(e1.weight > e2.weight) return 1;
+				if(e1.weight < e2.weight) return -1;
+				return 0;
+			}
+		});
+
+		for(Edge e : sorted) this.offer(e);
+
+		g.addGraphListener(this);
+	}
+
+	/**
+	 * Stops following the changes of the graph. The forest is left as it is.
+	 */
+	public void detach(){
+		this.graph.removeGraphListener(this);
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the total weight of the forest.
+	 * @return long
+	 */
+	public long weight(){
+		return this.weight;
+	}
+
+	/**
+	 * Returns the number of edges in the forest, not counting conjugates.
+	 */
+	public int size(){
+		return this.treeNodes.size();
+	}
+
+	/**
+	 * Determines whether the edge is currently part of the forest.
+	 * @param e The edge to look for.
+	 * @return boolean
+	 */
+	public boolean contains(Edge e){
+		return this.treeNodes.containsKey(e);
+	}
+
+	/**
+	 * Creates a graph of the current forest in the same shape aKruskalMinimumSpanningTree returns.
+	 * @return A graph with every vertex and the tree edges.
+	 */
+	public Graph tree(){
+		Graph g = new Graph();
+		g.V = this.graph.V;
+
+		for(Vertex v : this.graph.vertices) g.vertices.add(v);
+
+		for(Edge e : this.graph.edges){
+			if(!this.treeNodes.containsKey(e)) continue;
+
+			g.edges.add(e);
+			if(this.unDirectedGraph){
+				Edge c = Edge.conjugate(e);
+				if(c != null) g.edges.add(c);
+			}
+		}
+
+		g.E = g.edges.size();
+		g.resetGraphLabels();
+		return g;
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	public void vertexInserted(Graph g, Vertex v){
+		this.nodeOf(v);
+	}
+
+	public void edgeInserted(Graph g, Edge e){
+		this.offer(e);
+	}
+
+	public void edgeRemoved(Graph g, Edge e){
+		if(!this.treeNodes.containsKey(e)) return;
+
+		this.remove(e);
+		this.reconnect(e.a, e.b);
+	}
+
+	public void weightChanged(Graph g, Edge e, int oldWeight){
+		Integer x = this.treeNodes.get(e);
+
+		//Case: non tree edge, it can only get in by becoming lighter
+		if(x == null){
+			if(e.weight < oldWeight) this.offer(e);
+			return;
+		}
+
+		this.forest.setValue(x, e.weight);
+		this.weight += e.weight - oldWeight;
+
+		//Case: heavier tree edge, some other edge across the cut may now be lighter
+		if(e.weight > oldWeight){
+			this.remove(e);
+			this.reconnect(e.a, e.b);
+		}
+	}
+
+	public void vertexRemoved(Graph g, Vertex v){
+		// Its edges were already removed so the node is on its own
+		Integer x = this.vertexNodes.remove(v);
+		if(x != null) this.forest.releaseNode(x);
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Puts e in the forest if it joins two trees or is lighter than the heaviest edge on the path it would close.
+	 */
+	private void offer(Edge e){
+		int a = this.nodeOf(e.a);
+		int b = this.nodeOf(e.b);
+		if(a == b) return;
+
+		if(!this.forest.connected(a, b)){
+			this.add(e, a, b);
+			return;
+		}
+
+		int heaviest = this.forest.pathMax(a, b);
+		Edge h = this.nodeEdges[heaviest];
+		if(h != null && this.forest.valueOf(heaviest) > e.weight){
+			this.remove(h);
+			this.add(e, a, b);
+		}
+	}
+
+	/**
+	 * Links the two halves left by removing a tree edge between a and b with the lightest edge crossing between them, if there is one.
+	 * Only the edges of the smaller half are scanned.
+	 */
+	private void reconnect(Vertex a, Vertex b){
+		Hashtable<Vertex,Boolean> side = this.smallerHalf(a, b);
+		Edge best = null;
+
+		// Every edge already joins two vertices of one tree, so an edge with exactly one end on the smaller side crosses to the other
+		for(Vertex u : side.keySet()){
+			for(Edge e : u.out) best = this.lighterCrossing(e, side, best);
+			for(Edge e : u.in) best = this.lighterCrossing(e, side, best);
+		}
+
+		if(best != null) this.add(best, this.nodeOf(best.a), this.nodeOf(best.b));
+	}
+
+	/**
+	 * Returns e if it is a non tree edge leaving the side that is lighter than best, and best otherwise.
+	 */
+	private Edge lighterCrossing(Edge e, Hashtable<Vertex,Boolean> side, Edge best){
+		if(best != null && e.weight >= best.weight) return best;
+		if(this.treeNodes.containsKey(e)) return best;
+		if(side.containsKey(e.a) == side.containsKey(e.b)) return best;
+		return e;
+	}
+
+	/**
+	 * Walks the trees of a and b along the tree edges one vertex at a time each, and stops as soon as one of them is done.
+	 * @return The vertices of the smaller tree.
+	 */
+	private Hashtable<Vertex,Boolean> smallerHalf(Vertex a, Vertex b){
+		ArrayList<Vertex> queueA = new ArrayList<Vertex>();
+		ArrayList<Vertex> queueB = new ArrayList<Vertex>();
+		Hashtable<Vertex,Boolean> sideA = new Hashtable<Vertex,Boolean>();
+		Hashtable<Vertex,Boolean> sideB = new Hashtable<Vertex,Boolean>();
+
+		queueA.add(a);
+		sideA.put(a, true);
+		queueB.add(b);
+		sideB.put(b, true);
+
+		for(int i = 0, j = 0; ; i++, j++){
+			if(i == queueA.size()) return sideA;
+			this.visit(queueA.get(i), queueA, sideA);
+
+			if(j == queueB.size()) return sideB;
+			this.visit(queueB.get(j), queueB, sideB);
+		}
+	}
+
+	/**
+	 * Queues the unseen tree neighbours of u.
+	 */
+	private void visit(Vertex u, ArrayList<Vertex> queue, Hashtable<Vertex,Boolean> seen){
+		for(Edge e : u.out)
+			if(this.treeNodes.containsKey(e) && seen.put(e.b, true) == null) queue.add(e.b);
+		for(Edge e : u.in)
+			if(this.treeNodes.containsKey(e) && seen.put(e.a, true) == null) queue.add(e.a);
+	}
+
+	private void add(Edge e, int a, int b){
+		int x = this.forest.newNode(e.weight);
+
+		if(x >= this.nodeEdges.length) this.nodeEdges = Arrays.copyOf(this.nodeEdges, 2*x);
+		this.nodeEdges[x] = e;
+		this.treeNodes.put(e, x);
+
+		this.forest.link(a, x);
+		this.forest.link(x, b);
+		this.weight += e.weight;
+	}
+
+	private void remove(Edge e){
+		int x = this.treeNodes.remove(e);
+
+		this.forest.cut(this.nodeOf(e.a), x);
+		this.forest.cut(x, this.nodeOf(e.b));
+		this.weight -= this.forest.valueOf(x);
+
+		this.nodeEdges[x] = null;
+		this.forest.releaseNode(x);
+	}
+
+	/**
+	 * Returns the forest node of v, creating one the first time v is seen.
+	 */
+	private int nodeOf(Vertex v){
+		Integer x = this.vertexNodes.get(v);
+		if(x != null) return x;
+
+		int n = this.forest.newNode(Long.MIN_VALUE);
+		if(n >= this.nodeEdges.length) this.nodeEdges = Arrays.copyOf(this.nodeEdges, 2*n);
+		this.vertexNodes.put(v, n);
+		return n;
+	}
+
+}
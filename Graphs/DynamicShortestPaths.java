@@ -0,0 +1,325 @@
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Hashtable;
+import java.util.PriorityQueue;
+
+
+/**
+ * The shortest paths from one source that keep themselves up to date as the graph changes, instead of running
+ * DijkstraShortestPaths again after every change (Ramalingam and Reps).
+ * An inserted edge, or a lowered weight, that shortens the path to its end is propagated with a Dijkstra search seeded at that end,
+ * which only settles the vertices whose distance drops. Removing a shortest path tree edge, or raising its weight, clears the subtree
+ * hanging from it, seeds each of its vertices with the best edge coming from outside the subtree and runs Dijkstra over the subtree only.
+ * Every other change costs O(1). Weights have to stay non negative.
+ * @version 1.0
+ * @see Graph#DijkstraShortestPaths(Vertex)
+ * @see Graph#setWeight(Edge, int)
+ *
+ */
+public class DynamicShortestPaths implements GraphListener {
+
+	/**
+	 * The graph the paths run on.
+	 */
+	private Graph graph;
+
+	/**
+	 * The vertex the paths start at.
+	 */
+	private Vertex source;
+
+	/**
+	 * The length of the shortest path (value) to each vertex s reaches (key).
+	 */
+	private Hashtable<Vertex,Integer> distances;
+
+	/**
+	 * The last edge on the shortest path (value) to each vertex s reaches other than s (key).
+	 */
+	private Hashtable<Vertex,Edge> parents;
+
+	/**
+	 * Whether a negative weight edge has been inserted since, which the repairs can't handle.
+	 */
+	private boolean negativeWeight;
+
+	/**
+	 * The number of vertices settled by the last repair.
+	 */
+	private int affected;
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Computes the shortest paths from s with Dijkstra's algorithm and registers itself as a listener of g.
+	 * @see DynamicShortestPaths#detach()
+	 * @param g The graph the paths run on.
+	 * @param s The vertex the paths start at.
+	 * @throws DijkstraNegativeWeightEdge If the graph has an edge with a negative weight.
+	 */
+	public DynamicShortestPaths(Graph g, Vertex s) throws DijkstraNegativeWeightEdge{
+		if(g == null) throw new NullPointerException("Can't find paths in a null graph");
+		if(s == null) throw new NullPointerException("The passed vertex is null");
+		if(g.containsNegativeWeightEdges()) throw new DijkstraNegativeWeightEdge("Graph contains negative weight edge");
+
+		this.graph = g;
+		this.source = s;
+		this.distances = new Hashtable<Vertex,Integer>();
+		this.parents = new Hashtable<Vertex,Edge>();
+
+		PriorityQueue<Reached> qp = DynamicShortestPaths.newQueue();
+		this.distances.put(s, 0);
+		qp.add(new Reached(s, 0));
+		this.propagate(qp);
+
+		g.addGraphListener(this);
+	}
+
+	/**
+	 * Stops following the changes of the graph. The paths are left as they are.
+	 */
+	public void detach(){
+		this.graph.removeGraphListener(this);
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the vertex the paths start at.
+	 */
+	public Vertex source(){
+		return this.source;
+	}
+
+	/**
+	 * Returns the length of the shortest path from the source to v.
+	 * @param v The vertex the path ends at.
+	 * @return The length, or Integer.MAX_VALUE if v can't be reached.
+	 */
+	public int distanceTo(Vertex v){
+		this.checkWeights();
+
+		Integer d = this.distances.get(v);
+		return d == null ? Integer.MAX_VALUE : d;
+	}
+
+	/**
+	 * Returns the last edge on the shortest path from the source to v.
+	 * @param v The vertex the path ends at.
+	 * @return The edge, or null if v is the source or can't be reached.
+	 */
+	public Edge parentEdge(Vertex v){
+		this.checkWeights();
+		return this.parents.get(v);
+	}
+
+	/**
+	 * Returns the vertices on the shortest path from the source to v, both included.
+	 * @param v The vertex the path ends at.
+	 * @return The path, or null if v can't be reached.
+	 */
+	public ArrayList<Vertex> pathTo(Vertex v){
+		this.checkWeights();
+		if(!this.distances.containsKey(v)) return null;
+
+		ArrayList<Vertex> path = new ArrayList<Vertex>();
+		path.add(v);
+		for(Edge e = this.parents.get(v); e != null; e = this.parents.get(e.a)) path.add(e.a);
+
+		Collections.reverse(path);
+		return path;
+	}
+
+	/**
+	 * Returns the number of vertices the last change made the paths settle again, a measure of how local the repair was.
+	 */
+	public int lastAffected(){
+		return this.affected;
+	}
+
+	/**
+	 * Returns a string with the source and the number of vertices reached boxed up in brackets.
+	 * @return String
+	 */
+	public String toString(){
+		return "DynamicShortestPaths: [S="+this.source+"][N="+this.distances.size()+"]";
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	public void vertexInserted(Graph g, Vertex v){
+		// A vertex with no edges can't be reached yet
+	}
+
+	public void edgeInserted(Graph g, Edge e){
+		if(e.weight < 0) this.negativeWeight = true;
+		else this.shortened(e);
+	}
+
+	public void edgeRemoved(Graph g, Edge e){
+		this.lengthened(e);
+	}
+
+	public void weightChanged(Graph g, Edge e, int oldWeight){
+		if(e.weight < 0) this.negativeWeight = true;
+		else if(e.weight < oldWeight) this.shortened(e);
+		else this.lengthened(e);
+	}
+
+	public void vertexRemoved(Graph g, Vertex v){
+		// Its edges were already removed, which cut off everything that went through it
+		this.distances.remove(v);
+		this.parents.remove(v);
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Propagates an edge that got cheaper or was inserted, if it shortens the path to its end.
+	 */
+	private void shortened(Edge e){
+		this.affected = 0;
+
+		Integer du = this.distances.get(e.a);
+		if(du == null) return;
+
+		long r = (long)du + e.weight;
+		Integer dz = this.distances.get(e.b);
+		if(r > Integer.MAX_VALUE || (dz != null && r >= dz)) return;
+
+		this.distances.put(e.b, (int)r);
+		this.parents.put(e.b, e);
+
+		PriorityQueue<Reached> qp = DynamicShortestPaths.newQueue();
+		qp.add(new Reached(e.b, (int)r));
+		this.propagate(qp);
+	}
+
+	/**
+	 * Repairs the subtree below an edge that got more expensive or was removed, if it is a tree edge.
+	 */
+	private void lengthened(Edge e){
+		this.affected = 0;
+		if(this.parents.get(e.b) != e) return;
+
+		// The subtree hanging from e.b is found by following the parent edges down
+		ArrayList<Vertex> subtree = new ArrayList<Vertex>();
+		Hashtable<Vertex,Boolean> inSubtree = new Hashtable<Vertex,Boolean>();
+		subtree.add(e.b);
+		inSubtree.put(e.b, true);
+
+		for(int i = 0; i < subtree.size(); i++){
+			for(Edge f : subtree.get(i).out){
+				if(this.parents.get(f.b) == f && !inSubtree.containsKey(f.b)){
+					subtree.add(f.b);
+					inSubtree.put(f.b, true);
+				}
+			}
+		}
+
+		for(Vertex v : subtree){
+			this.distances.remove(v);
+			this.parents.remove(v);
+		}
+
+		// Each vertex of the subtree starts from its best edge coming from outside, whose tail still has a correct distance
+		PriorityQueue<Reached> qp = DynamicShortestPaths.newQueue();
+		for(Vertex v : subtree){
+			Edge best = null;
+			long bestDistance = Integer.MAX_VALUE;
+
+			for(Edge f : v.in){
+				if(inSubtree.containsKey(f.a)) continue;
+
+				Integer du = this.distances.get(f.a);
+				if(du == null) continue;
+
+				long r = (long)du + f.weight;
+				if(r < bestDistance){
+					best = f;
+					bestDistance = r;
+				}
+			}
+
+			if(best != null){
+				this.distances.put(v, (int)bestDistance);
+				this.parents.put(v, best);
+				qp.add(new Reached(v, (int)bestDistance));
+			}
+		}
+
+		this.propagate(qp);
+	}
+
+	/**
+	 * Runs Dijkstra's search from the queued vertices, skipping the entries made stale by a later improvement.
+	 */
+	private void propagate(PriorityQueue<Reached> qp){
+		while(!qp.isEmpty()){
+			Reached x = qp.poll();
+			if(x.distance != this.distances.get(x.vertex)) continue;
+
+			this.affected++;
+
+			for(Edge e : x.vertex.out){
+				long r = (long)x.distance + e.weight;
+				if(r > Integer.MAX_VALUE) continue;
+
+				Integer dz = this.distances.get(e.b);
+				if(dz != null && r >= dz) continue;
+
+				this.distances.put(e.b, (int)r);
+				this.parents.put(e.b, e);
+				qp.add(new Reached(e.b, (int)r));
+			}
+		}
+	}
+
+	private void checkWeights(){
+		if(this.negativeWeight) throw new IllegalStateException("A negative weight edge was inserted, the paths can't be repaired");
+	}
+
+	private static PriorityQueue<Reached> newQueue(){
+		return new PriorityQueue<Reached>(16, new Comparator<Reached>() {
+			public int compare(Reached x, Reached y) {
+				if(x.distance > y.distance) return 1;
+				if(x.distance < y.distance) return -1;
+				return 0;
+			}
+		});
+	}
+
+	/**
+	 * A queued vertex with the distance it had when it was queued.
+	 */
+	private static class Reached {
+
+		Vertex vertex;
+		int distance;
+
+		Reached(Vertex vertex, int distance){
+			this.vertex = vertex;
+			this.distance = distance;
+		}
+	}
+
+}
@@ -0,0 +1,631 @@
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+
+/**
+ * Builds a graph file in the binary format of MappedGraph from edges given in any order, using no more than a fixed memory budget
+ * however many edges there are. Edges are packed as a long key, the origin in the high half and the destination in the low half,
+ * next to their weight and collected until the budget is full; the batch is then radix sorted and spilled to a temporary run file.
+ * build merges the runs k ways, in several passes if there are too many for the budget, and streams the merged edges straight
+ * into the offsets, targets and weights of the output file. Edges with the same origin and destination keep the order they were added in.
+ * Only O(budget) memory is used, so files far larger than RAM can be built and then opened with MappedGraph#open(File).
+ * @version 1.0
+ * @see MappedGraph#open(File)
+ * @see GraphImporter#readSNAP(File, ExternalGraphBuilder, LongIdMap)
+ *
+ */
+public class ExternalGraphBuilder {
+
+	/**
+	 * The smallest memory budget accepted.
+	 */
+	public static final long MIN_MEMORY = 1 << 22;
+
+	/**
+	 * The bytes a buffered edge takes while sorting: its key and weight and their copies.
+	 */
+	private static final int EDGE_BYTES = 24;
+
+	/**
+	 * The bytes of an edge in a run file: its key and its weight.
+	 */
+	private static final int RECORD_BYTES = 12;
+
+	/**
+	 * The bounds of the size of every I/O buffer.
+	 */
+	private static final int MIN_BUFFER = 1 << 16;
+	private static final int MAX_BUFFER = 1 << 23;
+
+	/**
+	 * The bits sorted per radix pass.
+	 */
+	private static final int RADIX_BITS = 16;
+
+	/**
+	 * The share of the budget, one in SPILL_BUFFERS, kept for the buffer runs are spilled through.
+	 */
+	private static final int SPILL_BUFFERS = 8;
+
+	private final long memory;
+	private final File directory;
+
+	/**
+	 * The edges not yet spilled: their keys, their weights and the copies the sort scatters into.
+	 */
+	private long[] keys, keysAux;
+	private int[] weights, weightsAux;
+	private int buffered;
+	private final int capacity;
+
+	/**
+	 * The spilled runs in the order they were written.
+	 */
+	private final ArrayList<File> runs = new ArrayList<File>();
+
+	/**
+	 * Contains the number of vertices, one more than the largest id seen
+	 */
+	private int V;
+
+	/**
+	 * Contains the number of edges added
+	 */
+	private int E;
+
+	private boolean built;
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructs a builder that spills its runs to the default temporary directory.
+	 * @param memory The memory budget in bytes, at least MIN_MEMORY.
+	 */
+	public ExternalGraphBuilder(long memory){
+		this(memory, null);
+	}
+
+	/**
+	 * Constructs a builder that spills its runs to the passed directory.
+	 * @param memory The memory budget in bytes, at least MIN_MEMORY.
+	 * @param directory The directory for the run files, or null for the default temporary directory.
+	 */
+	public ExternalGraphBuilder(long memory, File directory){
+		if(memory < MIN_MEMORY) throw new IllegalArgumentException("Memory budget must be at least "+MIN_MEMORY+" bytes");
+
+		this.memory = memory;
+		this.directory = directory;
+		this.capacity = (int)Math.min(Integer.MAX_VALUE - 8, (memory - this.bufferSize(SPILL_BUFFERS)) / EDGE_BYTES);
+		this.keys = new long[Math.min(this.capacity, 1 << 16)];
+		this.weights = new int[this.keys.length];
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the number of vertices the graph will have, one more than the largest id added.
+	 */
+	public int numVertices(){
+		return this.V;
+	}
+
+	/**
+	 * Returns the number of edges added so far.
+	 */
+	public int numEdges(){
+		return this.E;
+	}
+
+	/**
+	 * Returns the number of runs spilled to disk so far.
+	 */
+	public int numRuns(){
+		return this.runs.size();
+	}
+
+	/**
+	 * Makes sure the ids 0..n-1 are vertices of the graph even if no edge touches them.
+	 * @param n The least number of vertices.
+	 */
+	public void addVertices(int n){
+		if(this.built) throw new IllegalStateException("Graph was already built");
+		if(n < 0 || n == Integer.MAX_VALUE) throw new IllegalArgumentException("Invalid number of vertices "+n);
+
+		this.V = Math.max(this.V, n);
+	}
+
+	/**
+	 * Adds the edge a -> b, spilling the buffered edges to a run file when the memory budget is full.
+	 * @param a The id of the origin.
+	 * @param b The id of the destination.
+	 * @param weight The weight of the edge.
+	 * @throws IOException If a run can't be written.
+	 */
+	public void addEdge(int a, int b, int weight) throws IOException{
+		if(this.built) throw new IllegalStateException("Graph was already built");
+		if(a < 0 || b < 0 || a == Integer.MAX_VALUE || b == Integer.MAX_VALUE) throw new IllegalArgumentException("Invalid edge "+a+" -> "+b);
+		if(this.E == Integer.MAX_VALUE) throw new IllegalStateException("A graph file holds at most "+Integer.MAX_VALUE+" edges");
+
+		if(this.buffered == this.keys.length){
+			if(this.buffered == this.capacity) this.spill();
+			else this.growBuffer();
+		}
+
+		this.keys[this.buffered] = ((long)a << 32) | b;
+		this.weights[this.buffered++] = weight;
+
+		this.V = Math.max(this.V, Math.max(a, b) + 1);
+		this.E++;
+	}
+
+	/**
+	 * Writes the graph file. Every edge is read back once per merge pass; the runs are deleted afterwards, and the builder
+	 * can't be used again.
+	 * @see MappedGraph#open(File)
+	 * @param output The file to be created or overwritten.
+	 * @throws IOException If a run can't be read or the file can't be written.
+	 */
+	public void build(File output) throws IOException{
+		if(output == null) throw new NullPointerException("Passed File is null");
+		if(this.built) throw new IllegalStateException("Graph was already built");
+		this.built = true;
+
+		try {
+			// Everything fit in the budget: sort in memory and skip the run files
+			if(this.runs.isEmpty()){
+				this.sort();
+				// The copies are not needed once sorted, their share of the budget goes to the output buffers
+				this.keysAux = null;
+				this.weightsAux = null;
+				this.write(output, null);
+				return;
+			}
+
+			if(this.buffered > 0) this.spill();
+			this.release();
+
+			// Every run needs a read buffer; merge groups of runs into longer ones until one merge can take them all
+			int fanIn = (int)Math.max(2, Math.min(Integer.MAX_VALUE, this.memory / MIN_BUFFER - 3));
+			while(this.runs.size() > fanIn){
+				ArrayList<File> merged = new ArrayList<File>();
+				try {
+					for(int i = 0; i < this.runs.size(); i += fanIn){
+						int j = Math.min(this.runs.size(), i + fanIn);
+						merged.add(this.mergeRuns(i, j));
+					}
+				} catch(IOException e){
+					for(File f : merged) f.delete();
+					throw e;
+				}
+				this.discard();
+				this.runs.addAll(merged);
+			}
+
+			this.write(output, this.openRuns(0, this.runs.size(), this.bufferSize(this.runs.size() + 3)));
+		} finally {
+			this.release();
+			this.discard();
+		}
+	}
+
+	/**
+	 * Deletes the runs spilled so far. Use it to abandon a builder without building.
+	 */
+	public void discard(){
+		for(File f : this.runs) f.delete();
+		this.runs.clear();
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	private void growBuffer(){
+		int n = (int)Math.min(this.capacity, 2L*this.keys.length);
+		this.keys = Arrays.copyOf(this.keys, n);
+		this.weights = Arrays.copyOf(this.weights, n);
+	}
+
+	private void release(){
+		this.keys = this.keysAux = null;
+		this.weights = this.weightsAux = null;
+		this.buffered = 0;
+	}
+
+	/**
+	 * Sorts the buffered edges and writes them to a new run file.
+	 */
+	private void spill() throws IOException{
+		this.sort();
+
+		File run = File.createTempFile("graph-run", ".tmp", this.directory);
+		this.runs.add(run);
+
+		RunWriter out = new RunWriter(run, this.bufferSize(SPILL_BUFFERS));
+		try {
+			for(int i = 0; i < this.buffered; i++) out.put(this.keys[i], this.weights[i]);
+		} finally {
+			out.close();
+		}
+
+		this.buffered = 0;
+	}
+
+	/**
+	 * Stable LSD radix sort of the buffered edges by key. Passes over digits that every key shares are skipped, so
+	 * graphs with fewer than 65536 vertices take two passes.
+	 */
+	private void sort(){
+		int n = this.buffered;
+		if(n < 2) return;
+
+		if(this.keysAux == null || this.keysAux.length < n){
+			this.keysAux = new long[this.keys.length];
+			this.weightsAux = new int[this.keys.length];
+		}
+
+		int[] count = new int[(1 << RADIX_BITS) + 1];
+		int mask = (1 << RADIX_BITS) - 1;
+
+		for(int shift = 0; shift < 64; shift += RADIX_BITS){
+			long[] k = this.keys;
+			int[] w = this.weights;
+
+			Arrays.fill(count, 0);
+			for(int i = 0; i < n; i++) count[((int)(k[i] >>> shift) & mask) + 1]++;
+			if(count[((int)(k[0] >>> shift) & mask) + 1] == n) continue;
+
+			for(int d = 0; d < mask; d++) count[d + 1] += count[d];
+
+			long[] k2 = this.keysAux;
+			int[] w2 = this.weightsAux;
+			for(int i = 0; i < n; i++){
+				int p = count[(int)(k[i] >>> shift) & mask]++;
+				k2[p] = k[i];
+				w2[p] = w[i];
+			}
+
+			this.keys = k2;
+			this.keysAux = k;
+			this.weights = w2;
+			this.weightsAux = w;
+		}
+	}
+
+	/**
+	 * Merges the runs i..j-1 into a new run.
+	 */
+	private File mergeRuns(int i, int j) throws IOException{
+		File run = File.createTempFile("graph-run", ".tmp", this.directory);
+		int size = this.bufferSize(j - i + 1);
+
+		RunMerger in = this.openRuns(i, j, size);
+		RunWriter out = null;
+		try {
+			out = new RunWriter(run, size);
+			while(in.hasNext()){
+				in.next();
+				out.put(in.key, in.weight);
+			}
+		} catch(IOException e){
+			run.delete();
+			throw e;
+		} finally {
+			in.close();
+			if(out != null) out.close();
+		}
+
+		return run;
+	}
+
+	private RunMerger openRuns(int i, int j, int size) throws IOException{
+		RunReader[] readers = new RunReader[j - i];
+		try {
+			for(int r = 0; r < readers.length; r++) readers[r] = new RunReader(this.runs.get(i + r), size);
+		} catch(IOException e){
+			for(RunReader r : readers)
+				if(r != null) r.close();
+			throw e;
+		}
+		return new RunMerger(readers);
+	}
+
+	/**
+	 * Splits the budget evenly between the buffers open at the same time.
+	 */
+	private int bufferSize(int buffers){
+		return ExternalGraphBuilder.bufferSize(this.memory, buffers);
+	}
+
+	/**
+	 * Splits the passed part of the budget evenly between the buffers.
+	 */
+	private static int bufferSize(long memory, int buffers){
+		long size = memory / buffers;
+		return (int)Math.max(MIN_BUFFER, Math.min(MAX_BUFFER, size));
+	}
+
+	/**
+	 * Streams the sorted edges into the output file: the offsets, targets and weights are each written sequentially through
+	 * their own buffer at their own place in the file. The header goes last, so a build that fails leaves no valid graph file.
+	 * Buffered edges still hold their part of the budget, so the buffers then share what is left of it.
+	 * @param in The merged runs, or null to write the buffered edges.
+	 */
+	private void write(File output, RunMerger in) throws IOException{
+		RandomAccessFile file = new RandomAccessFile(output, "rw");
+		try {
+			FileChannel channel = file.getChannel();
+			channel.truncate(0);
+
+			// A buffered edge holds a key and a weight, the bytes of a run record
+			int size = in == null
+				? ExternalGraphBuilder.bufferSize(this.memory - (long)RECORD_BYTES*this.keys.length, 3)
+				: this.bufferSize(in.readers.length + 3);
+			long position = MappedGraph.HEADER_BYTES;
+			RegionWriter offsets = new RegionWriter(channel, position, size);
+			position += 4L*(this.V + 1);
+			RegionWriter targets = new RegionWriter(channel, position, size);
+			position += 4L*this.E;
+			RegionWriter weights = new RegionWriter(channel, position, size);
+
+			int u = 0;
+			int k = 0;
+			for(int i = 0; in == null ? i < this.buffered : in.hasNext(); i++){
+				long key;
+				int w;
+				if(in == null){
+					key = this.keys[i];
+					w = this.weights[i];
+				} else {
+					in.next();
+					key = in.key;
+					w = in.weight;
+				}
+
+				// The offsets of every vertex up to the origin are the number of edges written before it
+				int a = (int)(key >>> 32);
+				while(u <= a){
+					offsets.put(k);
+					u++;
+				}
+
+				targets.put((int)key);
+				weights.put(w);
+				k++;
+			}
+			while(u <= this.V){
+				offsets.put(k);
+				u++;
+			}
+
+			if(k != this.E) throw new IOException("Runs hold "+k+" edges but "+this.E+" were added");
+
+			offsets.flush();
+			targets.flush();
+			weights.flush();
+
+			ByteBuffer header = ByteBuffer.allocate(MappedGraph.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MappedGraph.MAGIC).putInt(MappedGraph.VERSION).putInt(this.V).putInt(this.E).putInt(0);
+			header.clear();
+			while(header.hasRemaining()) channel.write(header, header.position());
+		} finally {
+			if(in != null) in.close();
+			file.close();
+		}
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Writes key and weight records sequentially to a run file.
+	 */
+	private static class RunWriter {
+
+		private final RandomAccessFile file;
+		private final FileChannel channel;
+		private final ByteBuffer buf;
+
+		RunWriter(File run, int size) throws IOException{
+			this.file = new RandomAccessFile(run, "rw");
+			this.channel = this.file.getChannel();
+			this.channel.truncate(0);
+			this.buf = ByteBuffer.allocateDirect(size - size % RECORD_BYTES);
+		}
+
+		void put(long key, int weight) throws IOException{
+			if(this.buf.remaining() < RECORD_BYTES) this.drain();
+			this.buf.putLong(key).putInt(weight);
+		}
+
+		private void drain() throws IOException{
+			this.buf.flip();
+			while(this.buf.hasRemaining()) this.channel.write(this.buf);
+			this.buf.clear();
+		}
+
+		void close() throws IOException{
+			try {
+				this.drain();
+			} finally {
+				this.file.close();
+			}
+		}
+	}
+
+	/**
+	 * Reads the records of a run file sequentially.
+	 */
+	private static class RunReader {
+
+		private final RandomAccessFile file;
+		private final FileChannel channel;
+		private final ByteBuffer buf;
+
+		long key;
+		int weight;
+
+		RunReader(File run, int size) throws IOException{
+			this.file = new RandomAccessFile(run, "r");
+			this.channel = this.file.getChannel();
+			this.buf = ByteBuffer.allocateDirect(size - size % RECORD_BYTES);
+			this.buf.flip();
+		}
+
+		/**
+		 * Reads the next record into key and weight.
+		 * @return False at the end of the run.
+		 */
+		boolean advance() throws IOException{
+			if(this.buf.remaining() < RECORD_BYTES){
+				this.buf.compact();
+				while(this.buf.position() < RECORD_BYTES)
+					if(this.channel.read(this.buf) < 0) break;
+				this.buf.flip();
+
+				if(this.buf.remaining() == 0) return false;
+				if(this.buf.remaining() < RECORD_BYTES) throw new IOException("Run file is truncated");
+			}
+
+			this.key = this.buf.getLong();
+			this.weight = this.buf.getInt();
+			return true;
+		}
+
+		void close() throws IOException{
+			this.file.close();
+		}
+	}
+
+	/**
+	 * Merges runs through a binary heap of their readers ordered by current key, ties going to the earlier run so the
+	 * merge is stable.
+	 */
+	private static class RunMerger {
+
+		final RunReader[] readers;
+		private final int[] heap;
+		private int size;
+
+		long key;
+		int weight;
+
+		RunMerger(RunReader[] readers) throws IOException{
+			this.readers = readers;
+			this.heap = new int[readers.length];
+
+			for(int r = 0; r < readers.length; r++)
+				if(readers[r].advance()){
+					this.heap[this.size] = r;
+					this.siftUp(this.size++);
+				}
+		}
+
+		boolean hasNext(){
+			return this.size > 0;
+		}
+
+		/**
+		 * Moves the smallest record into key and weight.
+		 */
+		void next() throws IOException{
+			int r = this.heap[0];
+			RunReader min = this.readers[r];
+			this.key = min.key;
+			this.weight = min.weight;
+
+			if(!min.advance()) this.heap[0] = this.heap[--this.size];
+			if(this.size > 0) this.siftDown(0);
+		}
+
+		private boolean less(int r, int s){
+			long x = this.readers[r].key;
+			long y = this.readers[s].key;
+			return x < y || (x == y && r < s);
+		}
+
+		private void siftUp(int i){
+			int r = this.heap[i];
+			while(i > 0){
+				int p = (i - 1) >>> 1;
+				if(!this.less(r, this.heap[p])) break;
+				this.heap[i] = this.heap[p];
+				i = p;
+			}
+			this.heap[i] = r;
+		}
+
+		private void siftDown(int i){
+			int r = this.heap[i];
+			while(2*i + 1 < this.size){
+				int c = 2*i + 1;
+				if(c + 1 < this.size && this.less(this.heap[c + 1], this.heap[c])) c++;
+				if(!this.less(this.heap[c], r)) break;
+				this.heap[i] = this.heap[c];
+				i = c;
+			}
+			this.heap[i] = r;
+		}
+
+		void close() throws IOException{
+			IOException error = null;
+			for(RunReader r : this.readers){
+				try {
+					r.close();
+				} catch(IOException e){
+					error = e;
+				}
+			}
+			if(error != null) throw error;
+		}
+	}
+
+	/**
+	 * Writes little endian ints sequentially from a fixed position of the output file.
+	 */
+	private static class RegionWriter {
+
+		private final FileChannel channel;
+		private final ByteBuffer buf;
+		private long position;
+
+		RegionWriter(FileChannel channel, long position, int size) throws IOException{
+			this.channel = channel;
+			this.position = position;
+			this.buf = ByteBuffer.allocateDirect(size & ~3).order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		void put(int x) throws IOException{
+			if(!this.buf.hasRemaining()) this.flush();
+			this.buf.putInt(x);
+		}
+
+		void flush() throws IOException{
+			this.buf.flip();
+			while(this.buf.hasRemaining()) this.position += this.channel.write(this.buf, this.position);
+			this.buf.clear();
+		}
+	}
+
+}
@@ -4,13 +4,20 @@
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Hashtable;
 import java.util.InputMismatchException;
 import java.util.PriorityQueue;
 import java.util.Random;
-import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 
 /**
@@ -59,6 +66,33 @@ public class Graph {
 	 * Contains the labels (value) for each edge (key)
 	 */
 	public Hashtable<Edge, Label> edgeLabels;
+	
+	/**
+	 * The objects notified of every mutation made through the graph's methods
+	 */
+	private ArrayList<GraphListener> listeners = new ArrayList<GraphListener>();
+	
+	/**
+	 * The CSR snapshot shared by the snapshot queries and every ShortestPathResult since the last mutation, or null until one is needed
+	 */
+	private CSRGraph snapshot;
+	
+	/**
+	 * The name insertVertex gives next, or -1 until it is first called
+	 */
+	private int nextName = -1;
+	
+	/**
+	 * The dense id (value) of each external long key (key), and the vertex of each of those ids or null once removed
+	 */
+	private LongIdMap longKeys;
+	private ArrayList<Vertex> longKeyed;
+	
+	/**
+	 * The dense id (value) of each external String key (key), and the vertex of each of those ids or null once removed
+	 */
+	private StringIdMap stringKeys;
+	private ArrayList<Vertex> stringKeyed;
 
 //////////////////////////////////////////////////////////////////
 //////////////////////////////////////////////////////////////////
@@ -120,50 +154,50 @@ public class Graph {
 	 * Number of vertices;
 	 * A number of edges E;
 	 * E lines containing edges with the starting vertex, a tab, the ending vertex, a tab and the weight of the edge. 
+	 * The file is parsed in parallel from a memory mapping by GraphLoader.
+	 * @see GraphLoader#load(File)
 	 * @param input
 	 */
 	public Graph(File input)  {
-		this.vertices = new ArrayList<Vertex>();
-		this.edges = new ArrayList<Edge>();
+		this();
 		
 		if(input != null) try {
-			Scanner scan = new Scanner(input);
-
-			V = scan.nextInt();
-			E = scan.nextInt();
-				 
-			
-			for(int i = 0; i < V; i++)
-				vertices.add(new Vertex(i));
-				
-			for(int i = 0; i < E; i++){
-				int a = scan.nextInt();
-				int b = scan.nextInt();
-				int w = scan.nextInt();
-				
-				Vertex A = vertices.get(a);
-				Vertex B = vertices.get(b);
-				
-				this.insertEdge(A, B, w);
-			}
+			GraphLoader.load(input, this);
 			
 			if(!Graph.isWorkingGraph(this, false))
 				throw new FileNotFoundException();
 			
-			edgeLabels = new Hashtable<Edge, Label>();
-			vertexLabels = new Hashtable<Vertex, Label>();
-			
-			this.resetGraphLabels();
-			
-			
-		} catch (FileNotFoundException e) { 
+		} catch (IOException e) { 
 			System.out.println("Error reading input");
 			e.printStackTrace(); 
 		}
 		
-		
+	}
+
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
 	
-		
+	/**
+	 * Writes the graph in the binary CSR format, to be opened later by MappedGraph#open(File) without any parsing.
+	 * Vertex ids are the positions in the adjacency list. The arrays are streamed from the adjacency lists, so no CSRGraph is built.
+	 * @see MappedGraph#write(CSRGraph, File)
+	 * @see GraphWriter#writeBinary(Graph, java.nio.channels.WritableByteChannel)
+	 * @param output The file to be created or overwritten.
+	 * @throws IOException If the file can't be written.
+	 */
+	public void writeBinary(File output) throws IOException{
+		if(output == null) throw new NullPointerException("Passed File is null");
+		
+		RandomAccessFile file = new RandomAccessFile(output, "rw");
+		try {
+			FileChannel channel = file.getChannel();
+			channel.truncate(0);
+			GraphWriter.writeBinary(this, channel);
+		} finally {
+			file.close();
+		}
 	}
 
 //////////////////////////////////////////////////////////////////
@@ -317,6 +351,9 @@ public class Graph {
 		a.out.add(e);
 		
 		b.in.add(e);
+		
+		this.snapshot = null;
+		for(GraphListener l : this.listeners) l.edgeInserted(this, e);
 	}
 
 //////////////////////////////////////////////////////////////////
@@ -341,6 +378,9 @@ public class Graph {
 		v.out.add(e);
 
 		w.in.add(e);
+		
+		this.snapshot = null;
+		for(GraphListener l : this.listeners) l.edgeInserted(this, e);
 	}
 	
 //////////////////////////////////////////////////////////////////
@@ -379,6 +419,26 @@ public class Graph {
 		return this.vertices.get( i % this.vertices.size());
 	}
 	
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Maps every vertex to its position in the adjacency list. The positions are dense ids in 0..V-1
+	 * which the array based algorithms use instead of overwriting Vertex.name.
+	 * @see Graph#aPJMinimumSpanningTree(boolean)
+	 * @return A Hashtable with the position (value) of each Vertex (key).
+	 */
+	public Hashtable<Vertex,Integer> vertexIndices(){
+		Hashtable<Vertex,Integer> index = new Hashtable<Vertex,Integer>(2*this.vertices.size()+1);
+		
+		for(int i = 0; i < this.vertices.size(); i++)
+			index.put(this.vertices.get(i), i);
+		
+		return index;
+	}
+	
 //////////////////////////////////////////////////////////////////
 //////////////////////////////////////////////////////////////////
 //////////////////////////////////////////////////////////////////
@@ -477,6 +537,113 @@ public class Graph {
 		return false;
 	}
 	
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Creates a vertex and inserts it into the adjacency list. Its name comes from a counter kept by this graph, one past the
+	 * largest name in the graph when first called, so graphs don't share names or interfere with each other.
+	 * @see Graph#insertVertex(long)
+	 * @see Graph#insertVertex(String)
+	 * @return The new vertex.
+	 */
+	public Vertex insertVertex(){
+		if(this.nextName == -1){
+			this.nextName = 0;
+			for(Vertex v : this.vertices) this.nextName = Math.max(this.nextName, v.name + 1);
+		}
+		
+		Vertex v = new Vertex(this.nextName++);
+		
+		this.vertices.add(v);
+		this.vertexLabels.put(v, Label.UNEXPLORED);
+		this.V++;
+		
+		this.snapshot = null;
+		for(GraphListener l : this.listeners) l.vertexInserted(this, v);
+		
+		return v;
+	}
+	
+	/**
+	 * Returns the vertex of the external key, inserting one the first time the key is seen.
+	 * The keys are kept in a LongIdMap, so looking one up boxes nothing.
+	 * @see Graph#vertexOf(long)
+	 * @param key An external id, e.g. from a SNAP edge list.
+	 * @return The vertex of the key.
+	 */
+	public Vertex insertVertex(long key){
+		if(this.longKeys == null){
+			this.longKeys = new LongIdMap();
+			this.longKeyed = new ArrayList<Vertex>();
+		}
+		
+		int id = this.longKeys.add(key);
+		if(id == this.longKeyed.size()) this.longKeyed.add(null);
+		
+		Vertex v = this.longKeyed.get(id);
+		if(v == null){
+			v = this.insertVertex();
+			this.longKeyed.set(id, v);
+		}
+		
+		return v;
+	}
+	
+	/**
+	 * Returns the vertex of the external key, inserting one the first time the key is seen.
+	 * The keys are kept in a StringIdMap.
+	 * @see Graph#vertexOf(String)
+	 * @param key An external id, e.g. a label.
+	 * @return The vertex of the key.
+	 */
+	public Vertex insertVertex(String key){
+		if(key == null) throw new NullPointerException("Passed key is null");
+		if(this.stringKeys == null){
+			this.stringKeys = new StringIdMap();
+			this.stringKeyed = new ArrayList<Vertex>();
+		}
+		
+		int id = this.stringKeys.add(key);
+		if(id == this.stringKeyed.size()) this.stringKeyed.add(null);
+		
+		Vertex v = this.stringKeyed.get(id);
+		if(v == null){
+			v = this.insertVertex();
+			this.stringKeyed.set(id, v);
+		}
+		
+		return v;
+	}
+	
+	/**
+	 * Returns the vertex inserted for the external key.
+	 * @see Graph#insertVertex(long)
+	 * @param key An external id.
+	 * @return The vertex or null if the key was never inserted or its vertex was removed.
+	 */
+	public Vertex vertexOf(long key){
+		if(this.longKeys == null) return null;
+		
+		int id = this.longKeys.get(key);
+		return id == -1 ? null : this.longKeyed.get(id);
+	}
+	
+	/**
+	 * Returns the vertex inserted for the external key.
+	 * @see Graph#insertVertex(String)
+	 * @param key An external id.
+	 * @return The vertex or null if the key was never inserted or its vertex was removed.
+	 */
+	public Vertex vertexOf(String key){
+		if(key == null || this.stringKeys == null) return null;
+		
+		int id = this.stringKeys.get(key);
+		return id == -1 ? null : this.stringKeyed.get(id);
+	}
+	
 //////////////////////////////////////////////////////////////////
 //////////////////////////////////////////////////////////////////
 //////////////////////////////////////////////////////////////////
@@ -496,6 +663,9 @@ public class Graph {
 			del.a.out.remove(del);
 			del.b.in.remove(del);
 			this.E--;
+			
+			this.snapshot = null;
+			for(GraphListener l : this.listeners) l.edgeRemoved(this, del);
 		}
 		
 		
@@ -518,17 +688,75 @@ public class Graph {
 		if(vertices.contains(del)){
 			this.V--;
 			
-			for(int i = 0; i < del.outDegree(); i++)
-				this.removeEdge(del.out.get(i));
-			
-			for(int i = 0; i < del.inDegree(); i++)
-				this.removeEdge(del.in.get(i));
+			// removeEdge shrinks del.out and del.in so a copy is walked
+			for(Edge e : del.incidentEdges())
+				this.removeEdge(e);
 		
 			this.vertices.remove(del);
+			
+			// Its key now maps to no vertex; like the list removal above this is O(V)
+			if(this.longKeyed != null){
+				int i = this.longKeyed.indexOf(del);
+				if(i != -1) this.longKeyed.set(i, null);
+			}
+			if(this.stringKeyed != null){
+				int i = this.stringKeyed.indexOf(del);
+				if(i != -1) this.stringKeyed.set(i, null);
+			}
+			
+			this.snapshot = null;
+			for(GraphListener l : this.listeners) l.vertexRemoved(this, del);
 		}
 		
 	}
 	
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Changes the weight of the passed edge and notifies the graph's listeners.
+	 * @see GraphListener#weightChanged(Graph, Edge, int)
+	 * @param e The edge whose weight changes.
+	 * @param w The new weight.
+	 */
+	public void setWeight(Edge e, int w){
+		if(e == null) throw new NullPointerException("Passed Edge is null");
+		
+		int old = e.weight;
+		if(old == w) return;
+		
+		e.weight = w;
+		
+		this.snapshot = null;
+		for(GraphListener l : this.listeners) l.weightChanged(this, e, old);
+	}
+	
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Registers a listener that is notified after every insertVertex, insertEdge, removeEdge, removeVertex and setWeight.
+	 * @see Graph#removeGraphListener(GraphListener)
+	 * @param l The listener to be added.
+	 */
+	public void addGraphListener(GraphListener l){
+		if(l == null) throw new NullPointerException("Passed GraphListener is null");
+		if(!this.listeners.contains(l)) this.listeners.add(l);
+	}
+	
+	/**
+	 * Unregisters a listener added with addGraphListener.
+	 * @see Graph#addGraphListener(GraphListener)
+	 * @param l The listener to be removed.
+	 */
+	public void removeGraphListener(GraphListener l){
+		this.listeners.remove(l);
+	}
+	
 //////////////////////////////////////////////////////////////////
 //////////////////////////////////////////////////////////////////
 //////////////////////////////////////////////////////////////////
@@ -855,6 +1083,108 @@ public class Graph {
 		return -1;
 	}
 
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Finds a shortest unweighed path from s to v by searching from both ends.
+	 * One BFS grows from s over outgoing edges and another from v over incoming edges, and each round expands a whole level of
+	 * whichever frontier has fewer edges to scan. The search stops at the first level where the two meet, so only the vertices
+	 * within about half the distance of either end are touched. Labels are not used or changed and nothing needs resetting afterwards.
+	 * @see Graph#BFSShortestPath(Vertex, Vertex, boolean)
+	 * @param s The starting vertex.
+	 * @param v The vertex to be reached.
+	 * @return The vertices of a shortest path from s to v, both included, so its hop count is size()-1; null if v can't be reached from s.
+	 */
+	public ArrayList<Vertex> bidirectionalBFSShortestPath(Vertex s, Vertex v){
+		if(!Vertex.aVertex(s) || !Vertex.aVertex(v)) throw new InputMismatchException("Vertice(s) are invalid");
+		
+		ArrayList<Vertex> path = new ArrayList<Vertex>();
+		
+		//Case: If s and v are the same vertex the path is only s
+		if(s == v){
+			path.add(s);
+			return path;
+		}
+		
+		// Depth from its own end of every vertex each side reached, and the edge it was reached through
+		Hashtable<Vertex,Integer> forwardDepth = new Hashtable<Vertex,Integer>();
+		Hashtable<Vertex,Integer> backwardDepth = new Hashtable<Vertex,Integer>();
+		Hashtable<Vertex,Edge> forwardParent = new Hashtable<Vertex,Edge>();
+		Hashtable<Vertex,Edge> backwardParent = new Hashtable<Vertex,Edge>();
+		
+		ArrayList<Vertex> forward = new ArrayList<Vertex>();
+		ArrayList<Vertex> backward = new ArrayList<Vertex>();
+		forward.add(s);
+		backward.add(v);
+		forwardDepth.put(s, 0);
+		backwardDepth.put(v, 0);
+		
+		long forwardEdges = s.outDegree();
+		long backwardEdges = v.inDegree();
+		
+		Vertex meeting = null;
+		
+		while(meeting == null && !forward.isEmpty() && !backward.isEmpty()){
+			boolean expandForward = forwardEdges <= backwardEdges;
+			
+			ArrayList<Vertex> frontier = expandForward ? forward : backward;
+			Hashtable<Vertex,Integer> depth = expandForward ? forwardDepth : backwardDepth;
+			Hashtable<Vertex,Integer> otherDepth = expandForward ? backwardDepth : forwardDepth;
+			Hashtable<Vertex,Edge> parent = expandForward ? forwardParent : backwardParent;
+			
+			ArrayList<Vertex> incidence = new ArrayList<Vertex>();
+			long incidenceEdges = 0;
+			int best = Integer.MAX_VALUE;
+			
+			// The whole level is expanded so the shortest of the meetings it finds is kept
+			for(Vertex x : frontier){
+				int next = depth.get(x) + 1;
+				
+				for(Edge e : (expandForward ? x.out : x.in)){
+					Vertex w = expandForward ? e.b : e.a;
+					if(depth.containsKey(w)) continue;
+					
+					depth.put(w, next);
+					parent.put(w, e);
+					incidence.add(w);
+					incidenceEdges += expandForward ? w.outDegree() : w.inDegree();
+					
+					Integer rest = otherDepth.get(w);
+					if(rest != null && next + rest < best){
+						best = next + rest;
+						meeting = w;
+					}
+				}
+			}
+			
+			if(expandForward){
+				forward = incidence;
+				forwardEdges = incidenceEdges;
+			}
+			else{
+				backward = incidence;
+				backwardEdges = incidenceEdges;
+			}
+		}
+		
+		//Case: one side ran out of vertices, v is unreachable
+		if(meeting == null) return null;
+		
+		for(Vertex x = meeting; x != s; x = forwardParent.get(x).a) path.add(x);
+		path.add(s);
+		Collections.reverse(path);
+		
+		for(Vertex x = meeting; x != v; ){
+			x = backwardParent.get(x).b;
+			path.add(x);
+		}
+		
+		return path;
+	}
+
 //////////////////////////////////////////////////////////////////
 //////////////////////////////////////////////////////////////////
 //////////////////////////////////////////////////////////////////
@@ -881,6 +1211,94 @@ public class Graph {
 		return graphs;
 	}
 
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Runs a direction optimizing BFS from s, switching between top-down expansion of the out edges and bottom-up scanning
+	 * of the in edges against a bitset frontier. Labels are not used or changed.
+	 * Runs on the CSR snapshot shared by the snapshot queries, which is only taken again after the graph is changed through its methods;
+	 * changes made directly to the public lists or to Edge.weight are not seen.
+	 * @see Graph#BFS(boolean)
+	 * @see Graph#BFSShortestPath(Vertex, Vertex, boolean)
+	 * @see CSRGraph#directionOptimizingBFS(int)
+	 * @param s The vertex to start the BFS at.
+	 * @return The depth and parent of every vertex, indexed by position in the adjacency list.
+	 */
+	public BreadthFirstTree directionOptimizingBFS(Vertex s){
+		if(s == null) throw new NullPointerException("The passed vertex is null");
+		
+		CSRGraph g = this.snapshot();
+		int i = g.indexOf(s);
+		if(i == -1) throw new InputMismatchException("Vertex is not in the graph");
+		
+		return g.directionOptimizingBFS(i);
+	}
+
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Runs a parallel level synchronous BFS over the outgoing edges on the common ForkJoinPool, starting a new search at every vertex
+	 * not reached by an earlier one. Labels are not used or changed. The search runs on the CSR snapshot shared with the other snapshot
+	 * queries, which is only taken again after the graph is changed through its methods; changes made directly to the public lists
+	 * or to Edge.weight are not seen.
+	 * @see Graph#BFS(boolean)
+	 * @see CSRGraph#parallelBFSLevels(ForkJoinPool)
+	 * @return Triple nested ArrayList of vertices for (general to specific) the searches, the breadth levels of each search and the vertices of each level.
+	 */
+	public ArrayList<ArrayList<ArrayList<Vertex>>> parallelBFS(){
+		
+		if(this.vertices.isEmpty()) return null;
+		
+		CSRGraph g = this.snapshot();
+		ArrayList< ArrayList< ArrayList<Vertex> > > graphs = new ArrayList<ArrayList<ArrayList<Vertex>>>();
+		
+		for(ArrayList<int[]> search : g.parallelBFSLevels(ForkJoinPool.commonPool())){
+			ArrayList< ArrayList<Vertex> > levels = new ArrayList< ArrayList<Vertex> >();
+			
+			for(int[] level : search){
+				ArrayList<Vertex> incidence = new ArrayList<Vertex>(level.length);
+				for(int v : level) incidence.add(g.vertex(v));
+				levels.add(incidence);
+			}
+			
+			graphs.add(levels);
+		}
+		
+		return graphs;
+	}
+	
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Finds the shortest unweighed path length from s to v with a parallel level synchronous BFS over the outgoing edges.
+	 * Labels are not used or changed. Runs on the shared CSR snapshot.
+	 * @see Graph#BFSShortestPath(Vertex, Vertex, boolean)
+	 * @see CSRGraph#parallelBFSShortestPath(ForkJoinPool, int, int)
+	 * @param s The starting vertex.
+	 * @param v The vertex whose distance from the starting the vertex has to be determined.
+	 * @return Cases: if s is v : 0; if s is isolated from v: -1; otherwise : distance from s to v.
+	 */
+	public int parallelBFSShortestPath(Vertex s, Vertex v){
+		if(!Vertex.aVertex(s) || !Vertex.aVertex(v)) throw new InputMismatchException("Vertice(s) are invalid");
+		if(s == v) return 0;
+		
+		CSRGraph g = this.snapshot();
+		int a = g.indexOf(s);
+		int b = g.indexOf(v);
+		if(a == -1 || b == -1) throw new InputMismatchException("Vertice(s) are not in the graph");
+		
+		return g.parallelBFSShortestPath(ForkJoinPool.commonPool(), a, b);
+	}
+
 //////////////////////////////////////////////////////////////////
 //////////////////////////////////////////////////////////////////
 //////////////////////////////////////////////////////////////////
@@ -1479,39 +1897,159 @@ public class Graph {
 //////////////////////////////////////////////////////////////////
 
 	/**
-	 * Runs Dijkstra's shortestpath on the given graph and produces a shortestpath tree.
-	 * @see Graph#containsNegativeWeightEdges()
-	 * @see Graph#weightsAllEqual()
+	 * Finds every vertex whose shortest path from s is at most d long, i.e. the isochrone of s.
+	 * Dijkstra's search stops as soon as the next vertex is farther than d, and edges leading past d are never queued, so only the
+	 * explored vertices are touched. Names and labels are left as they are and nothing needs resetting afterwards.
+	 * @see Graph#kNearest(Vertex, int)
 	 * @see Graph#DijkstraShortestPaths(Vertex)
-	 * @see Graph#BellmanFordShortestPaths(Vertex)
-	 * @see Graph#aBellmanFordShortestPathTree(Vertex)
-	 * @param s The vertex used to produce its shortestpath tree to all other vertices.
-	 * @return A shortestpaths tree from s.
-	 * @throws DijkstraNegativeWeightEdge Dijkstra's Algorithm can't process negative weight edges because it violates the Triangle Inequality which is the basis for the Algorithm.
+	 * @param s The vertex to measure from.
+	 * @param d The largest distance wanted.
+	 * @return The vertices within distance d, s included, nearest first.
+	 * @throws DijkstraNegativeWeightEdge If the search meets an edge with a negative weight.
 	 */
-	public Graph aDijkstraShortestPathTree(Vertex s) {
+	public NearestVertices withinDistance(Vertex s, int d) throws DijkstraNegativeWeightEdge{
 		if(s == null) throw new NullPointerException("The passed vertex is null");
+		if(d < 0) return new NearestVertices(new Vertex[0], new int[0], new int[0]);
 		
-		if(this.weightsAllEqual()) System.out.println("Better to run BFS-ShortestPath or BellmanFordShortestPath");
-		// if(this.containsNegativeWeightEdges()) throw new DijkstraNegativeWeightEdge("Graph contains negative weight edge");
+		return this.boundedDijkstra(s, d, Integer.MAX_VALUE, false);
+	}
+	
+	/**
+	 * Finds the k vertices with the shortest paths from s, not counting s itself.
+	 * Dijkstra's search stops as soon as k vertices have been settled, so only the explored vertices are touched.
+	 * Names and labels are left as they are and nothing needs resetting afterwards.
+	 * @see Graph#withinDistance(Vertex, int)
+	 * @see Graph#DijkstraShortestPaths(Vertex)
+	 * @param s The vertex to measure from.
+	 * @param k The number of vertices wanted.
+	 * @return At most k vertices, nearest first; fewer if s reaches less than k vertices.
+	 * @throws DijkstraNegativeWeightEdge If the search meets an edge with a negative weight.
+	 */
+	public NearestVertices kNearest(Vertex s, int k) throws DijkstraNegativeWeightEdge{
+		if(s == null) throw new NullPointerException("The passed vertex is null");
+		if(k <= 0) return new NearestVertices(new Vertex[0], new int[0], new int[0]);
 		
-		PriorityQueue<Vertex> qp = new PriorityQueue<Vertex>(10, new Comparator<Vertex>() {
+		return this.boundedDijkstra(s, Integer.MAX_VALUE, k, true);
+	}
+	
+	/**
+	 * Runs Dijkstra's search from s until the next vertex is farther than maxDistance or count vertices have been settled.
+	 * Vertices get local ids in the order they are discovered, so the state is only as large as the explored region.
+	 */
+	private NearestVertices boundedDijkstra(Vertex s, int maxDistance, int count, boolean skipSource) throws DijkstraNegativeWeightEdge{
 		
-			public int compare(Vertex v1, Vertex v2) {
-				int i1 = v1.name;
-				int i2 = v2.name;
-				
+		Hashtable<Vertex,Integer> local = new Hashtable<Vertex,Integer>();
+		ArrayList<Vertex> discovered = new ArrayList<Vertex>();
+		IndexedMinHeap qp = new IndexedMinHeap(16);
+		
+		local.put(s, 0);
+		discovered.add(s);
+		qp.insert(0, 0);
+		
+		ArrayList<Vertex> found = new ArrayList<Vertex>();
+		int[] distances = new int[16];
+		
+		while(!qp.isEmpty() && found.size() < count){
+			int du = qp.keyOf(qp.peek());
+			if(du > maxDistance) break;
+			
+			Vertex u = discovered.get(qp.poll());
+			
+			if(u != s || !skipSource){
+				if(found.size() == distances.length) distances = Arrays.copyOf(distances, 2*distances.length);
+				distances[found.size()] = du;
+				found.add(u);
+			}
+			
+			for(Edge e : u.out){
+				if(e.weight < 0) throw new DijkstraNegativeWeightEdge("Graph contains negative weight edge");
 				
-				if(i1 > i2) return 1;
-				if(i1 < i2) return -1;
+				// Paths past the bound are never queued
+				long r = (long)du + e.weight;
+				if(r > maxDistance) continue;
 				
-				return 0;
+				Integer z = local.get(e.b);
+				if(z == null){
+					z = discovered.size();
+					local.put(e.b, z);
+					discovered.add(e.b);
+					qp.insert(z, (int)r);
+				}
+				else if(qp.contains(z)) qp.decreaseKey(z, (int)r);
 			}
-		});	
+		}
 		
-		Hashtable<Vertex,Edge> parents = new Hashtable<Vertex, Edge>();
-		Hashtable<Vertex,Integer> names = new Hashtable<Vertex, Integer>();
-		for(Vertex v : this.vertices) names.put(v, v.name);
+		Vertex[] vertices = found.toArray(new Vertex[0]);
+		int[] names = new int[vertices.length];
+		for(int i = 0; i < vertices.length; i++) names[i] = vertices[i].name;
+		
+		return new NearestVertices(vertices, names, Arrays.copyOf(distances, vertices.length));
+	}
+	
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+
+	/**
+	 * Computes the shortest path length from every source to every target, e.g. from depots to customers, on the shared CSR snapshot
+	 * of the graph. Rather than one full search per source, only one bounded search per row or per column is run, in parallel.
+	 * @see CSRGraph#distanceTable(int[], int[])
+	 * @param sources The row vertices.
+	 * @param targets The column vertices.
+	 * @return table[i][j] is the distance from sources[i] to targets[j], or -1 if targets[j] can't be reached.
+	 * @throws DijkstraNegativeWeightEdge If the graph has an edge with a negative weight.
+	 */
+	public int[][] distanceTable(Vertex[] sources, Vertex[] targets) throws DijkstraNegativeWeightEdge{
+		CSRGraph g = this.snapshot();
+		
+		int[] s = new int[sources.length];
+		for(int i = 0; i < s.length; i++) s[i] = g.indexOf(sources[i]);
+		int[] t = new int[targets.length];
+		for(int i = 0; i < t.length; i++) t[i] = g.indexOf(targets[i]);
+		
+		return g.distanceTable(s, t);
+	}
+	
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+
+	/**
+	 * Runs Dijkstra's shortestpath on the given graph and produces a shortestpath tree.
+	 * @see Graph#containsNegativeWeightEdges()
+	 * @see Graph#weightsAllEqual()
+	 * @see Graph#DijkstraShortestPaths(Vertex)
+	 * @see Graph#BellmanFordShortestPaths(Vertex)
+	 * @see Graph#aBellmanFordShortestPathTree(Vertex)
+	 * @param s The vertex used to produce its shortestpath tree to all other vertices.
+	 * @return A shortestpaths tree from s.
+	 * @throws DijkstraNegativeWeightEdge Dijkstra's Algorithm can't process negative weight edges because it violates the Triangle Inequality which is the basis for the Algorithm.
+	 */
+	public Graph aDijkstraShortestPathTree(Vertex s) {
+		if(s == null) throw new NullPointerException("The passed vertex is null");
+		
+		if(this.weightsAllEqual()) System.out.println("Better to run BFS-ShortestPath or BellmanFordShortestPath");
+		// if(this.containsNegativeWeightEdges()) throw new DijkstraNegativeWeightEdge("Graph contains negative weight edge");
+		
+		PriorityQueue<Vertex> qp = new PriorityQueue<Vertex>(10, new Comparator<Vertex>() {
+		
+			public int compare(Vertex v1, Vertex v2) {
+				int i1 = v1.name;
+				int i2 = v2.name;
+				
+				
+				if(i1 > i2) return 1;
+				if(i1 < i2) return -1;
+				
+				return 0;
+			}
+		});	
+		
+		Hashtable<Vertex,Edge> parents = new Hashtable<Vertex, Edge>();
+		Hashtable<Vertex,Integer> names = new Hashtable<Vertex, Integer>();
+		for(Vertex v : this.vertices) names.put(v, v.name);
 		
 		for(Vertex v : this.vertices) v.name = Integer.MAX_VALUE;
 		s.name = 0;
@@ -1594,6 +2132,59 @@ public class Graph {
 		return distances;
 	}
 	
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Runs Dijkstra's shortestpath from s on a CSR snapshot of the graph and keeps the result in two int arrays.
+	 * Unlike DijkstraShortestPaths no Hashtable of boxed distances is built and, unlike aDijkstraShortestPathTree, no Graph is allocated
+	 * for the parents: paths are built on demand by ShortestPathResult#pathTo(Vertex). The snapshot is taken once and shared by every
+	 * result until the graph is changed through its methods, so each further result only costs its two arrays;
+	 * changes made directly to the public lists or to Edge.weight are not seen. Runtime: O( E log V )
+	 * @see Graph#BellmanFordShortestPathResult(Vertex)
+	 * @see CSRGraph#DijkstraShortestPathResult(int)
+	 * @param s The vertex the paths start at.
+	 * @return ShortestPathResult
+	 * @throws DijkstraNegativeWeightEdge If the graph has an edge with a negative weight reachable from s.
+	 */
+	public ShortestPathResult DijkstraShortestPathResult(Vertex s) throws DijkstraNegativeWeightEdge{
+		if(s == null) throw new NullPointerException("The passed vertex is null");
+		
+		CSRGraph g = this.snapshot();
+		int i = g.indexOf(s);
+		if(i < 0) throw new InputMismatchException("Vertex is not in the graph");
+		
+		return g.DijkstraShortestPathResult(i);
+	}
+	
+	/**
+	 * Runs BellmanFords shortestpath from s on the shared CSR snapshot of the graph and keeps the result in two int arrays.
+	 * Rounds stop as soon as one changes nothing. Runtime: O( VE )
+	 * @see Graph#DijkstraShortestPathResult(Vertex)
+	 * @see CSRGraph#BellmanFordShortestPathResult(int)
+	 * @param s The vertex the paths start at.
+	 * @return ShortestPathResult
+	 */
+	public ShortestPathResult BellmanFordShortestPathResult(Vertex s){
+		if(s == null) throw new NullPointerException("The passed vertex is null");
+		
+		CSRGraph g = this.snapshot();
+		int i = g.indexOf(s);
+		if(i < 0) throw new InputMismatchException("Vertex is not in the graph");
+		
+		return g.BellmanFordShortestPathResult(i);
+	}
+	
+	/**
+	 * Returns the CSR snapshot shared by the queries that run on one, taking a new one after a mutation.
+	 */
+	private CSRGraph snapshot(){
+		if(this.snapshot == null) this.snapshot = new CSRGraph(this);
+		return this.snapshot;
+	}
+	
 //////////////////////////////////////////////////////////////////
 //////////////////////////////////////////////////////////////////
 //////////////////////////////////////////////////////////////////
@@ -1655,85 +2246,75 @@ public class Graph {
 
 	/**
 	 * Produces a Prim Jarnick Minimum Spanning Tree.
+	 * The vertices are keyed by their position in the adjacency list on an IndexedMinHeap, so every improvement is a
+	 * O(log V) decreaseKey and the whole run is O(E log V). Vertex names and graph labels are left untouched.
+	 * If the graph is not connected a minimum spanning forest is produced.
 	 * @see Graph#aKruskalMinimumSpanningTree(boolean)
+	 * @see IndexedMinHeap
 	 * @param unDirectedGraph True if the graph is undirected; false otherwise.
 	 * @return A minimum spanning tree.
 	 */
 	public Graph aPJMinimumSpanningTree(boolean unDirectedGraph){
 		if(this.E < 2 || this.V < 2) return null;
 		
-		Vertex s = this.getAVertex();
-		
-		
-		Hashtable<Vertex,Integer> names = new Hashtable<Vertex, Integer>();
-		for(Vertex v : this.vertices) names.put(v, v.name);
-		for(Vertex v : this.vertices) v.name = Integer.MAX_VALUE;
-		s.name = 0;
-		
-		
-		PriorityQueue<Vertex> qp = new PriorityQueue<Vertex>(10, new Comparator<Vertex>() {
-            public int compare(Vertex v1, Vertex v2) {
-            	int i1 = v1.name;
-            	int i2 = v2.name;
-            	
-            	if(i1 > i2) return 1;
-            	if(i1 < i2) return -1;
-            	
-                return 0;
-            }
-        });	
-		
-		Hashtable<Vertex,Edge> parents = new Hashtable<Vertex, Edge>();
-		this.resetGraphLabels();
-
-		
-		for(Vertex v : this.vertices) qp.offer(v);
+		int n = this.vertices.size();
+		Hashtable<Vertex,Integer> index = this.vertexIndices();
 		
+		int[] keys = new int[n];
+		Edge[] parents = new Edge[n];
+		boolean[] inTree = new boolean[n];
+		IndexedMinHeap qp = new IndexedMinHeap(n);
 		
+		for(int i = 0; i < n; i++) keys[i] = Integer.MAX_VALUE;
 		
-		while(!qp.isEmpty()){
+		// Every vertex not reached by an earlier tree roots a new one
+		for(int s = 0; s < n; s++){
+			if(inTree[s]) continue;
 			
-			Vertex u = qp.poll();
+			keys[s] = 0;
+			qp.insert(s, 0);
 			
-			for(Edge e : u.incidentOutEdges()){
-				if(this.edgeLabels.get(e) == Label.UNEXPLORED){
-					Vertex z = e.opposite(u);
-					this.edgeLabels.put(e, Label.EXPLORED);
-					if(unDirectedGraph) this.edgeLabels.put(Edge.conjugate(e), Label.EXPLORED);
-					int r = e.weight;
-					if(r < z.name){
-						z.name = r;
-						qp.remove(z);
-						qp.add(z);
-						parents.put(z, e);
+			while(!qp.isEmpty()){
+				int u = qp.poll();
+				inTree[u] = true;
+				
+				for(Edge e : this.vertices.get(u).out){
+					Integer z = index.get(e.b);
+					if(z == null || inTree[z]) continue;
+					
+					if(e.weight < keys[z]){
+						keys[z] = e.weight;
+						parents[z] = e;
+						if(qp.contains(z)) qp.decreaseKey(z, e.weight);
+						else qp.insert(z, e.weight);
 					}
 				}
 			}
 		}
 		
-		
-		for(Vertex v : this.vertices) v.name = names.get(v);
-		
 		Graph g = new Graph();
 		g.V = this.V;
-		if(unDirectedGraph) g.E = (g.V-1)*2;
-		else g.E = g.V-1;
 		
-		for(Vertex v : this.vertices) {
+		for(int i = 0; i < n; i++) {
+			Vertex v = this.vertices.get(i);
 			g.vertices.add(v);
 			g.vertexLabels.put(v, Label.UNEXPLORED);
-			Edge e = parents.get(v);
+			Edge e = parents[i];
 			if(e != null) {
 				g.edges.add(e);
 				g.edgeLabels.put(e, Label.UNEXPLORED);
 				if(unDirectedGraph) {
 					Edge y = Edge.conjugate(e);
-					g.edges.add(y);
-					g.edgeLabels.put(y, Label.UNEXPLORED);
+					if(y != null) {
+						g.edges.add(y);
+						g.edgeLabels.put(y, Label.UNEXPLORED);
+					}
 				}
 			}
 		}//End For
 		
+		g.E = g.edges.size();
+		
 		return g;
 	}
 	
@@ -1810,6 +2391,581 @@ public class Graph {
 		return g;
 	}
 	
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Produces a minimum spanning tree with Boruvka's algorithm using every core.
+	 * Each round scans the edges in parallel and keeps, per component, the lightest edge leaving it (ties broken by position in
+	 * the edge list so no cycle can form). The chosen edges are then contracted concurrently on a ConcurrentUnionFind.
+	 * Every round at least halves the number of components so there are O(log V) rounds.
+	 * If the graph is not connected a minimum spanning forest is produced.
+	 * @see Graph#aKruskalMinimumSpanningTree(boolean)
+	 * @see Graph#aPJMinimumSpanningTree(boolean)
+	 * @see ConcurrentUnionFind
+	 * @param unDirectedGraph True if the graph is undirected; false otherwise.
+	 * @return The minimum spanning tree and its total weight, or null if the graph has less than 2 vertices or edges.
+	 */
+	public MinimumSpanningTree aBoruvkaMinimumSpanningTree(boolean unDirectedGraph){
+		if(this.E < 2 || this.V < 2) return null;
+		
+		final int n = this.vertices.size();
+		final Edge[] edgeArray = this.edges.toArray(new Edge[0]);
+		final int[] src = new int[edgeArray.length];
+		final int[] dst = new int[edgeArray.length];
+		
+		Hashtable<Vertex,Integer> index = this.vertexIndices();
+		
+		// Edges are referred to by position; self loops and edges leaving the graph never join two components
+		int[] live = new int[edgeArray.length];
+		int liveCount = 0;
+		for(int i = 0; i < edgeArray.length; i++){
+			Integer a = index.get(edgeArray[i].a);
+			Integer b = index.get(edgeArray[i].b);
+			if(a == null || b == null || a.intValue() == b.intValue()) continue;
+			
+			src[i] = a;
+			dst[i] = b;
+			live[liveCount++] = i;
+		}
+		
+		final ConcurrentUnionFind clouds = new ConcurrentUnionFind(n);
+		final AtomicLongArray lightest = new AtomicLongArray(n);
+		final boolean[] chosen = new boolean[edgeArray.length];
+		final AtomicInteger merged = new AtomicInteger();
+		
+		while(liveCount > 0){
+			final int[] round = live;
+			final int roundSize = liveCount;
+			
+			ParallelRange.run(n, new ParallelRange.Body() {
+				public void run(int lo, int hi) {
+					for(int c = lo; c < hi; c++) lightest.set(c, Long.MAX_VALUE);
+				}
+			});
+			
+			// Weight in the high half and position in the low half orders the edges by weight then position
+			ParallelRange.run(roundSize, new ParallelRange.Body() {
+				public void run(int lo, int hi) {
+					for(int k = lo; k < hi; k++){
+						int i = round[k];
+						int a = clouds.find(src[i]);
+						int b = clouds.find(dst[i]);
+						if(a == b) continue;
+						
+						long key = ((long)edgeArray[i].weight << 32) | i;
+						lowerTo(lightest, a, key);
+						lowerTo(lightest, b, key);
+					}
+				}
+			});
+			
+			merged.set(0);
+			ParallelRange.run(n, new ParallelRange.Body() {
+				public void run(int lo, int hi) {
+					for(int c = lo; c < hi; c++){
+						long key = lightest.get(c);
+						if(key == Long.MAX_VALUE) continue;
+						
+						int i = (int)key;
+						if(clouds.union(src[i], dst[i])){
+							chosen[i] = true;
+							merged.incrementAndGet();
+						}
+					}
+				}
+			});
+			
+			if(merged.get() == 0) break;
+			
+			// Drops the edges that now lie inside a single component
+			int kept = 0;
+			for(int k = 0; k < roundSize; k++){
+				int i = round[k];
+				if(clouds.find(src[i]) != clouds.find(dst[i])) live[kept++] = i;
+			}
+			liveCount = kept;
+		}// End While
+		
+		Graph g = new Graph();
+		g.V = this.V;
+		long weight = 0;
+		
+		for(Vertex v : this.vertices) {
+			g.vertices.add(v);
+			g.vertexLabels.put(v, Label.UNEXPLORED);
+		}
+		
+		for(int i = 0; i < edgeArray.length; i++){
+			if(!chosen[i]) continue;
+			
+			Edge e = edgeArray[i];
+			weight += e.weight;
+			g.edges.add(e);
+			g.edgeLabels.put(e, Label.UNEXPLORED);
+			
+			if(unDirectedGraph) {
+				Edge c = Edge.conjugate(e);
+				if(c != null) {
+					g.edges.add(c);
+					g.edgeLabels.put(c, Label.UNEXPLORED);
+				}
+			}
+		}
+		
+		g.E = g.edges.size();
+		
+		return new MinimumSpanningTree(g, weight);
+	}
+	
+	/**
+	 * Atomically lowers the value at i to key if key is smaller.
+	 */
+	private static void lowerTo(AtomicLongArray values, int i, long key){
+		long current = values.get(i);
+		while(key < current && !values.compareAndSet(i, current, key))
+			current = values.get(i);
+	}
+	
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Produces a Kruskal Minimum Spanning Tree with the Filter-Kruskal scheme, which avoids sorting most heavy edges.
+	 * The edges are split around a random pivot weight, the light half is solved first, and then every heavy edge whose
+	 * endpoints already share a component is filtered out (in parallel) before the heavy half is ever partitioned or sorted.
+	 * Only small ranges are actually sorted. If the graph is not connected a minimum spanning forest is produced.
+	 * @see Graph#aKruskalMinimumSpanningTree(boolean)
+	 * @see Graph#aBoruvkaMinimumSpanningTree(boolean)
+	 * @param unDirectedGraph  True if the graph is undirected; false otherwise.
+	 * @return A minimum spanning tree.
+	 */
+	public Graph aFilterKruskalMinimumSpanningTree(boolean unDirectedGraph){
+		if(this.E < 2 || this.V < 2) return null;
+		
+		Edge[] edgeArray = this.edges.toArray(new Edge[0]);
+		int[] src = new int[edgeArray.length];
+		int[] dst = new int[edgeArray.length];
+		
+		Hashtable<Vertex,Integer> index = this.vertexIndices();
+		
+		// Weight in the high half and position in the low half: sorting the keys sorts the edges by weight
+		long[] keys = new long[edgeArray.length];
+		int m = 0;
+		for(int i = 0; i < edgeArray.length; i++){
+			Integer a = index.get(edgeArray[i].a);
+			Integer b = index.get(edgeArray[i].b);
+			if(a == null || b == null || a.intValue() == b.intValue()) continue;
+			
+			src[i] = a;
+			dst[i] = b;
+			keys[m++] = ((long)edgeArray[i].weight << 32) | i;
+		}
+		
+		FilterKruskal fk = new FilterKruskal(this.vertices.size(), src, dst);
+		fk.solve(keys, 0, m);
+		
+		Graph g = new Graph();
+		g.V = this.V;
+		
+		for(Vertex v : this.vertices) g.vertices.add(v);
+		
+		for(int k = 0; k < fk.treeSize; k++){
+			Edge e = edgeArray[fk.tree[k]];
+			g.edges.add(e);
+			
+			if(unDirectedGraph) {
+				Edge c = Edge.conjugate(e);
+				if(c != null) g.edges.add(c);
+			}
+		}
+		
+		g.E = g.edges.size();
+		g.resetGraphLabels();
+		return g;
+	}
+	
+	/**
+	 * The recursion of aFilterKruskalMinimumSpanningTree over packed (weight, position) edge keys.
+	 */
+	private static class FilterKruskal {
+		
+		/**
+		 * Ranges no larger than this are sorted and scanned directly.
+		 */
+		private static final int SORT_THRESHOLD = 1024;
+		
+		private final int[] src;
+		private final int[] dst;
+		private final ConcurrentUnionFind clouds;
+		private final Random random = new Random();
+		
+		private int components;
+		private int[] tree;
+		private int treeSize;
+		
+		FilterKruskal(int n, int[] src, int[] dst){
+			this.src = src;
+			this.dst = dst;
+			this.clouds = new ConcurrentUnionFind(n);
+			this.components = n;
+			this.tree = new int[Math.max(n - 1, 0)];
+			this.treeSize = 0;
+		}
+		
+		void solve(long[] keys, int lo, int hi){
+			if(this.components <= 1 || lo >= hi) return;
+			
+			if(hi - lo <= SORT_THRESHOLD){
+				Arrays.sort(keys, lo, hi);
+				this.scan(keys, lo, hi);
+				return;
+			}
+			
+			// Median of three random keys; keys are distinct so one side always shrinks
+			long pivot = median(keys[lo + this.random.nextInt(hi - lo)],
+					keys[lo + this.random.nextInt(hi - lo)],
+					keys[lo + this.random.nextInt(hi - lo)]);
+			
+			int split = partition(keys, lo, hi, pivot);
+			if(split == hi) split = partition(keys, lo, hi, pivot - 1);
+			
+			this.solve(keys, lo, split);
+			
+			int kept = this.filter(keys, split, hi);
+			this.solve(keys, split, kept);
+		}
+		
+		/**
+		 * Runs plain Kruskal over sorted keys.
+		 */
+		private void scan(long[] keys, int lo, int hi){
+			for(int k = lo; k < hi && this.components > 1; k++){
+				int i = (int)keys[k];
+				if(this.clouds.union(this.src[i], this.dst[i])){
+					this.tree[this.treeSize++] = i;
+					this.components--;
+				}
+			}
+		}
+		
+		/**
+		 * Moves the keys of edges that still join two components to the front of [lo, hi).
+		 * @return The end of the kept keys.
+		 */
+		private int filter(final long[] keys, final int lo, int hi){
+			if(this.components <= 1) return lo;
+			
+			final boolean[] keep = new boolean[hi - lo];
+			ParallelRange.run(hi - lo, new ParallelRange.Body() {
+				public void run(int from, int to) {
+					for(int k = from; k < to; k++){
+						int i = (int)keys[lo + k];
+						keep[k] = !clouds.sameSet(src[i], dst[i]);
+					}
+				}
+			});
+			
+			int kept = lo;
+			for(int k = 0; k < keep.length; k++)
+				if(keep[k]) keys[kept++] = keys[lo + k];
+			
+			return kept;
+		}
+		
+		/**
+		 * Moves the keys not greater than the pivot to the front of [lo, hi).
+		 * @return The end of the keys not greater than the pivot.
+		 */
+		private static int partition(long[] keys, int lo, int hi, long pivot){
+			int i = lo;
+			int j = hi - 1;
+			
+			while(true){
+				while(i <= j && keys[i] <= pivot) i++;
+				while(i <= j && keys[j] > pivot) j--;
+				if(i >= j) return i;
+				
+				long t = keys[i];
+				keys[i] = keys[j];
+				keys[j] = t;
+			}
+		}
+		
+		private static long median(long a, long b, long c){
+			if(a > b){
+				long t = a;
+				a = b;
+				b = t;
+			}
+			if(b > c) b = c;
+			return a > b ? a : b;
+		}
+	}
+	
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+//////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Produces a minimum spanning arborescence (optimum branching) of a directed graph rooted at root, i.e. the cheapest set of
+	 * edges that gives every other vertex exactly one incoming edge and a directed path from root.
+	 * This is Tarjan's version of the Chu-Liu/Edmonds algorithm: the incoming edges of each vertex sit in a mergeable leftist heap
+	 * with lazy weight offsets, cycles are contracted by melding their heaps, and a rollback union-find expands the contractions
+	 * at the end to recover the actual edges. Runtime: O( E log V ).
+	 * Unlike aKruskalMinimumSpanningTree and aPJMinimumSpanningTree the direction of every edge is respected.
+	 * @see Graph#aKruskalMinimumSpanningTree(boolean)
+	 * @see Graph#aPJMinimumSpanningTree(boolean)
+	 * @param root The vertex every path of the arborescence starts from.
+	 * @return The arborescence, holding every vertex and the V-1 chosen edges, and its total weight.
+	 * @throws InvalidGraph If root is not in the graph or some vertex can't be reached from root.
+	 */
+	public MinimumSpanningTree aMinimumSpanningArborescence(Vertex root) throws InvalidGraph{
+		if(root == null) throw new NullPointerException("The passed vertex is null");
+		
+		Hashtable<Vertex,Integer> index = this.vertexIndices();
+		Integer rootIndex = index.get(root);
+		if(rootIndex == null) throw new InvalidGraph("Root is not a vertex of the graph");
+		
+		int n = this.vertices.size();
+		int r = rootIndex;
+		Edge[] edgeArray = this.edges.toArray(new Edge[0]);
+		int[] from = new int[edgeArray.length];
+		int[] to = new int[edgeArray.length];
+		
+		// Each vertex starts with a heap of its incoming edges; self loops and edges into root are never used
+		BranchingHeap[] heap = new BranchingHeap[n];
+		for(int i = 0; i < edgeArray.length; i++){
+			Integer a = index.get(edgeArray[i].a);
+			Integer b = index.get(edgeArray[i].b);
+			if(a == null || b == null || a.intValue() == b.intValue() || b.intValue() == r) continue;
+			
+			from[i] = a;
+			to[i] = b;
+			heap[b] = BranchingHeap.meld(heap[b], new BranchingHeap(i, edgeArray[i].weight));
+		}
+		
+		RollbackUnionFind clouds = new RollbackUnionFind(n);
+		long weight = 0;
+		
+		int[] seen = new int[n];
+		int[] path = new int[n];
+		int[] queue = new int[n];
+		int[] in = new int[n];
+		for(int i = 0; i < n; i++){
+			seen[i] = -1;
+			in[i] = -1;
+		}
+		seen[r] = r;
+		
+		ArrayList<int[]> cycles = new ArrayList<int[]>();
+		
+		for(int s = 0; s < n; s++){
+			int u = s;
+			int qi = 0;
+			
+			// Follows cheapest incoming edges until reaching root, an earlier path or closing a cycle
+			while(seen[u] < 0){
+				if(heap[u] == null) throw new InvalidGraph("Vertex "+this.vertices.get(s)+" can't be reached from "+root);
+				
+				long w = heap[u].top();
+				int e = heap[u].edge;
+				heap[u].delta -= w;
+				heap[u] = heap[u].pop();
+				
+				queue[qi] = e;
+				path[qi++] = u;
+				seen[u] = s;
+				weight += w;
+				u = clouds.find(from[e]);
+				
+				//Case: closed a cycle, contract it into a single vertex
+				if(seen[u] == s){
+					BranchingHeap cycle = null;
+					int end = qi;
+					int time = clouds.time();
+					int x;
+					
+					do cycle = BranchingHeap.meld(cycle, heap[x = path[--qi]]);
+					while(clouds.join(u, x));
+					
+					u = clouds.find(u);
+					heap[u] = cycle;
+					seen[u] = -1;
+					
+					int[] record = new int[end - qi + 2];
+					record[0] = u;
+					record[1] = time;
+					System.arraycopy(queue, qi, record, 2, end - qi);
+					cycles.add(record);
+				}
+			}
+			
+			for(int i = 0; i < qi; i++) in[clouds.find(to[queue[i]])] = queue[i];
+		}
+		
+		// Expands the cycles newest first: the edge entering a cycle replaces the cycle edge into the same vertex
+		for(int c = cycles.size() - 1; c >= 0; c--){
+			int[] record = cycles.get(c);
+			clouds.rollback(record[1]);
+			
+			int inEdge = in[record[0]];
+			for(int k = 2; k < record.length; k++) in[clouds.find(to[record[k]])] = record[k];
+			in[clouds.find(to[inEdge])] = inEdge;
+		}
+		
+		Graph g = new Graph();
+		g.V = this.V;
+		
+		for(int i = 0; i < n; i++){
+			Vertex v = this.vertices.get(i);
+			g.vertices.add(v);
+			g.vertexLabels.put(v, Label.UNEXPLORED);
+			
+			if(i != r){
+				Edge e = edgeArray[in[i]];
+				g.edges.add(e);
+				g.edgeLabels.put(e, Label.UNEXPLORED);
+			}
+		}
+		
+		g.E = g.edges.size();
+		
+		return new MinimumSpanningTree(g, weight);
+	}
+	
+	/**
+	 * A leftist heap of edges keyed by weight with a lazy offset added to the whole subtree.
+	 * Melding keeps the right spine O(log n) long so the recursion stays shallow.
+	 */
+	private static class BranchingHeap {
+		
+		private final int edge;
+		private long key;
+		private long delta;
+		private int rank;
+		private BranchingHeap left;
+		private BranchingHeap right;
+		
+		BranchingHeap(int edge, long key){
+			this.edge = edge;
+			this.key = key;
+			this.rank = 1;
+		}
+		
+		/**
+		 * Pushes the lazy offset down to the children.
+		 */
+		private void push(){
+			if(this.delta == 0) return;
+			
+			this.key += this.delta;
+			if(this.left != null) this.left.delta += this.delta;
+			if(this.right != null) this.right.delta += this.delta;
+			this.delta = 0;
+		}
+		
+		long top(){
+			this.push();
+			return this.key;
+		}
+		
+		BranchingHeap pop(){
+			this.push();
+			return meld(this.left, this.right);
+		}
+		
+		static BranchingHeap meld(BranchingHeap a, BranchingHeap b){
+			if(a == null) return b;
+			if(b == null) return a;
+			
+			a.push();
+			b.push();
+			if(a.key > b.key){
+				BranchingHeap t = a;
+				a = b;
+				b = t;
+			}
+			
+			a.right = meld(a.right, b);
+			if(a.left == null || a.left.rank < a.right.rank){
+				BranchingHeap t = a.left;
+				a.left = a.right;
+				a.right = t;
+			}
+			a.rank = (a.right == null ? 0 : a.right.rank) + 1;
+			
+			return a;
+		}
+	}
+	
+	/**
+	 * A union-find without path compression whose unions can be undone in reverse order.
+	 */
+	private static class RollbackUnionFind {
+		
+		/**
+		 * The parent of each id, or minus the size of the set for roots.
+		 */
+		private final int[] parent;
+		private int[] history;
+		private int historySize;
+		
+		RollbackUnionFind(int n){
+			this.parent = new int[n];
+			this.history = new int[16];
+			this.historySize = 0;
+			
+			for(int i = 0; i < n; i++) this.parent[i] = -1;
+		}
+		
+		int find(int x){
+			while(this.parent[x] >= 0) x = this.parent[x];
+			return x;
+		}
+		
+		int time(){
+			return this.historySize;
+		}
+		
+		void rollback(int time){
+			while(this.historySize > time){
+				int old = this.history[--this.historySize];
+				int x = this.history[--this.historySize];
+				this.parent[x] = old;
+			}
+		}
+		
+		boolean join(int a, int b){
+			a = this.find(a);
+			b = this.find(b);
+			if(a == b) return false;
+			
+			if(this.parent[a] > this.parent[b]){
+				int t = a;
+				a = b;
+				b = t;
+			}
+			
+			if(this.historySize + 4 > this.history.length)
+				this.history = Arrays.copyOf(this.history, 2*this.history.length);
+			
+			this.history[this.historySize++] = a;
+			this.history[this.historySize++] = this.parent[a];
+			this.history[this.historySize++] = b;
+			this.history[this.historySize++] = this.parent[b];
+			
+			this.parent[a] += this.parent[b];
+			this.parent[b] = a;
+			return true;
+		}
+	}
+	
 //////////////////////////////////////////////////////////////////
 //////////////////////////////////////////////////////////////////
 //////////////////////////////////////////////////////////////////
@@ -0,0 +1,538 @@
+
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+
+/**
+ * Imports graphs from the formats public datasets come in, in one buffered pass over the bytes:
+ * SNAP edge lists (comment lines starting with #, no header, one "origin destination [weight]" line per edge, sparse ids) and
+ * Matrix Market coordinate files (.mtx). Gzip compressed files are recognized by their magic number and decompressed on the fly.
+ * Numbers are parsed straight from the read buffer and every edge goes directly into the Graph or into the arrays of the CSRGraph being built.
+ * @version 1.0
+ * @see GraphLoader
+ *
+ */
+public class GraphImporter {
+
+	/**
+	 * The size of the read buffer.
+	 */
+	private static final int BUFFER = 1 << 16;
+
+	private GraphImporter(){}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Opens the file for reading, through a GZIPInputStream if it starts with the gzip magic number.
+	 * @param input The file, compressed or not.
+	 * @return InputStream
+	 * @throws IOException If the file can't be opened.
+	 */
+	public static InputStream open(File input) throws IOException{
+		if(input == null) throw new NullPointerException("Passed File is null");
+
+		BufferedInputStream in = new BufferedInputStream(new FileInputStream(input), BUFFER);
+		in.mark(2);
+		int b0 = in.read();
+		int b1 = in.read();
+		in.reset();
+
+		if(b0 == 0x1f && b1 == 0x8b) return new GZIPInputStream(in, BUFFER);
+		return in;
+	}
+
+	/**
+	 * Imports a SNAP edge list into a Graph. Ids may be any 64 bit numbers: each is inserted with Graph#insertVertex(long), so the
+	 * vertices are named 0, 1, ... in the order their ids first appear and Graph#vertexOf(long) finds them by id.
+	 * Lines with a third number give the edge its weight, the others get weight 0.
+	 * @see GraphImporter#readSNAPCSR(File)
+	 * @param input The edge list, plain or gzip compressed.
+	 * @return Graph
+	 * @throws IOException If the file can't be read or has a malformed line.
+	 */
+	public static Graph readSNAP(File input) throws IOException{
+		GraphSink sink = new GraphSink();
+		GraphImporter.readSNAP(input, sink);
+		return sink.finish();
+	}
+
+	/**
+	 * Imports a SNAP edge list into a CSRGraph, numbering the vertices as readSNAP does.
+	 * @see GraphImporter#readSNAP(File)
+	 * @param input The edge list, plain or gzip compressed.
+	 * @return CSRGraph
+	 * @throws IOException If the file can't be read or has a malformed line.
+	 */
+	public static CSRGraph readSNAPCSR(File input) throws IOException{
+		return GraphImporter.readSNAPCSR(input, new LongIdMap());
+	}
+
+	/**
+	 * Imports a SNAP edge list into a CSRGraph, keeping the external id of every vertex.
+	 * @see GraphImporter#readSNAP(File)
+	 * @param input The edge list, plain or gzip compressed.
+	 * @param ids An empty map, filled with the id of each vertex: vertex i is ids.keyOf(i).
+	 * @return CSRGraph
+	 * @throws IOException If the file can't be read or has a malformed line.
+	 */
+	public static CSRGraph readSNAPCSR(File input, LongIdMap ids) throws IOException{
+		if(ids.size() != 0) throw new IllegalArgumentException("The id map has to be empty");
+
+		CSRSink sink = new CSRSink(ids);
+		GraphImporter.readSNAP(input, sink);
+		return sink.finish();
+	}
+
+	/**
+	 * Imports a Matrix Market coordinate file into a Graph, with vertex i-1 for row and column i and an edge per entry.
+	 * Symmetric matrices also get the mirrored edge of every entry off the diagonal, negated for skew-symmetric ones.
+	 * Real values are rounded to the int weights; pattern matrices give weight 0.
+	 * @see GraphImporter#readMatrixMarketCSR(File)
+	 * @param input The .mtx file, plain or gzip compressed.
+	 * @return Graph
+	 * @throws IOException If the file can't be read, is a dense or complex matrix or has a malformed line.
+	 */
+	public static Graph readMatrixMarket(File input) throws IOException{
+		GraphSink sink = new GraphSink();
+		GraphImporter.readMatrixMarket(input, sink);
+		return sink.finish();
+	}
+
+	/**
+	 * Imports a Matrix Market coordinate file into a CSRGraph, as readMatrixMarket does.
+	 * @see GraphImporter#readMatrixMarket(File)
+	 * @param input The .mtx file, plain or gzip compressed.
+	 * @return CSRGraph
+	 * @throws IOException If the file can't be read, is a dense or complex matrix or has a malformed line.
+	 */
+	public static CSRGraph readMatrixMarketCSR(File input) throws IOException{
+		CSRSink sink = new CSRSink(null);
+		GraphImporter.readMatrixMarket(input, sink);
+		return sink.finish();
+	}
+
+	/**
+	 * Streams a SNAP edge list into an ExternalGraphBuilder, for edge lists too large to hold in memory.
+	 * With an id map the vertices are numbered as readSNAP does; without one the ids are used as the vertex ids and must fit an int.
+	 * @see ExternalGraphBuilder#build(File)
+	 * @param input The edge list, plain or gzip compressed.
+	 * @param builder The builder that receives the edges.
+	 * @param ids A map filled with the id of each vertex, or null to keep the ids of the file.
+	 * @throws IOException If the file can't be read, has a malformed line or a run can't be written.
+	 */
+	public static void readSNAP(File input, ExternalGraphBuilder builder, LongIdMap ids) throws IOException{
+		if(builder == null) throw new NullPointerException("Passed builder is null");
+		GraphImporter.readSNAP(input, new BuilderSink(builder, ids));
+	}
+
+	/**
+	 * Streams a Matrix Market coordinate file into an ExternalGraphBuilder, with the vertices and edges readMatrixMarket gives.
+	 * @see ExternalGraphBuilder#build(File)
+	 * @param input The .mtx file, plain or gzip compressed.
+	 * @param builder The builder that receives the edges.
+	 * @throws IOException If the file can't be read, is a dense or complex matrix, has a malformed line or a run can't be written.
+	 */
+	public static void readMatrixMarket(File input, ExternalGraphBuilder builder) throws IOException{
+		if(builder == null) throw new NullPointerException("Passed builder is null");
+		GraphImporter.readMatrixMarket(input, new BuilderSink(builder, null));
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	private static void readSNAP(File input, EdgeSink sink) throws IOException{
+		Tokenizer in = new Tokenizer(GraphImporter.open(input));
+		try {
+			while(in.nextLine('#')){
+				long a = in.nextLong();
+				long b = in.nextLong();
+				int w = 0;
+				if(!in.endOfLine()){
+					w = (int)in.nextLong();
+					if(!in.endOfLine()) throw in.error("Expected the end of the edge line");
+				}
+
+				sink.edge(sink.idOf(a), sink.idOf(b), w);
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	private static void readMatrixMarket(File input, EdgeSink sink) throws IOException{
+		Tokenizer in = new Tokenizer(GraphImporter.open(input));
+		try {
+			// %%MatrixMarket matrix coordinate <field> <symmetry>
+			String banner = in.bannerLine().toLowerCase();
+			String[] words = banner.trim().split("\\s+");
+			if(words.length < 5 || !words[0].equals("%%matrixmarket") || !words[1].equals("matrix"))
+				throw new IOException("Missing %%MatrixMarket banner");
+			if(!words[2].equals("coordinate")) throw new IOException("Only coordinate matrices can be imported");
+
+			String field = words[3];
+			String symmetry = words[4];
+			if(field.equals("complex")) throw new IOException("Complex matrices can't be imported");
+			boolean pattern = field.equals("pattern");
+			boolean mirror = !symmetry.equals("general");
+			boolean negate = symmetry.equals("skew-symmetric");
+
+			if(!in.nextLine('%')) throw new IOException("Missing size line");
+			long rows = in.nextLong();
+			long columns = in.nextLong();
+			long entries = in.nextLong();
+			long n = Math.max(rows, columns);
+			if(n > Integer.MAX_VALUE) throw new IOException("Matrix has too many rows");
+			if(entries < 0) throw new IOException("Size line announces a negative number of entries");
+			// Mirrored entries off the diagonal count twice, so this is an upper bound
+			sink.vertices((int)n, mirror ? 2*entries : entries);
+
+			long read = 0;
+			while(in.nextLine('%')){
+				long i = in.nextLong();
+				long j = in.nextLong();
+				if(i < 1 || i > rows || j < 1 || j > columns) throw in.error("Entry "+i+" "+j+" is out of range");
+
+				int w = pattern ? 0 : (int)Math.round(in.nextDouble());
+				if(!in.endOfLine()) throw in.error("Expected the end of the entry line");
+
+				sink.edge((int)(i - 1), (int)(j - 1), w);
+				if(mirror && i != j) sink.edge((int)(j - 1), (int)(i - 1), negate ? -w : w);
+				read++;
+			}
+
+			if(read != entries) throw new IOException("Size line announces "+entries+" entries but the file has "+read);
+		} finally {
+			in.close();
+		}
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Receives the vertices and edges as they are parsed.
+	 */
+	private interface EdgeSink {
+		/**
+		 * Makes sure the ids 0..n-1 exist and announces at most how many edges will follow, so storage can be sized once.
+		 */
+		public void vertices(int n, long edges);
+
+		/**
+		 * Returns the dense id of the external id, giving it the next one the first time it is seen.
+		 */
+		public int idOf(long key) throws IOException;
+
+		public void edge(int a, int b, int w) throws IOException;
+	}
+
+	/**
+	 * Builds a Graph edge by edge.
+	 */
+	private static class GraphSink implements EdgeSink {
+
+		Graph g = new Graph();
+
+		// A new graph names its vertices 0, 1, ... in the order they are inserted, which is also their position
+
+		public void vertices(int n, long edges){
+			g.vertices.ensureCapacity(n);
+			g.edges.ensureCapacity((int)Math.min(Integer.MAX_VALUE - 8, edges));
+			while(g.vertices.size() < n) g.insertVertex();
+		}
+
+		public int idOf(long key){
+			return g.insertVertex(key).name;
+		}
+
+		public void edge(int a, int b, int w){
+			Vertex A = g.vertices.get(a);
+			Vertex B = g.vertices.get(b);
+			Edge e = new Edge(A, B, w);
+
+			g.edges.add(e);
+			A.out.add(e);
+			B.in.add(e);
+		}
+
+		Graph finish(){
+			g.E = g.edges.size();
+			g.resetGraphLabels();
+			return g;
+		}
+	}
+
+	/**
+	 * Collects the edges in three int arrays and sorts them into a CSRGraph by origin at the end.
+	 */
+	private static class CSRSink implements EdgeSink {
+
+		int V, E;
+		int[] a = new int[1024], b = new int[1024], w = new int[1024];
+		LongIdMap ids;
+
+		CSRSink(LongIdMap ids){
+			this.ids = ids;
+		}
+
+		public void vertices(int n, long edges){
+			this.V = Math.max(this.V, n);
+
+			// Sized once for the announced edges instead of doubling up to them
+			if(edges > this.a.length){
+				int m = (int)Math.min(Integer.MAX_VALUE - 8, edges);
+				this.a = Arrays.copyOf(this.a, m);
+				this.b = Arrays.copyOf(this.b, m);
+				this.w = Arrays.copyOf(this.w, m);
+			}
+		}
+
+		public int idOf(long key){
+			int id = this.ids.add(key);
+			this.V = this.ids.size();
+			return id;
+		}
+
+		public void edge(int x, int y, int z){
+			if(this.E == this.a.length){
+				if(this.E == Integer.MAX_VALUE - 8) throw new IllegalStateException("Too many edges");
+				int n = (int)Math.min(Integer.MAX_VALUE - 8, 2L*this.E);
+				this.a = Arrays.copyOf(this.a, n);
+				this.b = Arrays.copyOf(this.b, n);
+				this.w = Arrays.copyOf(this.w, n);
+			}
+			this.a[this.E] = x;
+			this.b[this.E] = y;
+			this.w[this.E++] = z;
+		}
+
+		CSRGraph finish(){
+			int[] offsets = new int[this.V + 1];
+			for(int i = 0; i < this.E; i++) offsets[this.a[i] + 1]++;
+			for(int v = 0; v < this.V; v++) offsets[v + 1] += offsets[v];
+
+			int[] targets = new int[this.E];
+			int[] weights = new int[this.E];
+			int[] fill = Arrays.copyOf(offsets, this.V);
+			for(int i = 0; i < this.E; i++){
+				int k = fill[this.a[i]]++;
+				targets[k] = this.b[i];
+				weights[k] = this.w[i];
+			}
+
+			return new CSRGraph(this.V, offsets, targets, weights);
+		}
+	}
+
+	/**
+	 * Hands the edges to an ExternalGraphBuilder, which spills them to disk as its memory budget fills.
+	 */
+	private static class BuilderSink implements EdgeSink {
+
+		ExternalGraphBuilder builder;
+		LongIdMap ids;
+
+		BuilderSink(ExternalGraphBuilder builder, LongIdMap ids){
+			this.builder = builder;
+			this.ids = ids;
+		}
+
+		public void vertices(int n, long edges){
+			this.builder.addVertices(n);
+		}
+
+		public int idOf(long key) throws IOException{
+			if(this.ids != null) return this.ids.add(key);
+			if(key < 0 || key >= Integer.MAX_VALUE) throw new IOException("Id "+key+" doesn't fit a vertex id, pass an id map");
+			return (int)key;
+		}
+
+		public void edge(int a, int b, int w) throws IOException{
+			this.builder.addEdge(a, b, w);
+		}
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Reads numbers line by line straight out of a byte buffer.
+	 */
+	private static class Tokenizer {
+
+		private final InputStream in;
+		private final byte[] buf = new byte[BUFFER];
+		private int position, limit;
+		private long line;
+
+		Tokenizer(InputStream in){
+			this.in = in;
+		}
+
+		void close() throws IOException{
+			this.in.close();
+		}
+
+		/**
+		 * Returns the next byte without consuming it, or -1 at the end of the input.
+		 */
+		private int peek() throws IOException{
+			if(this.position == this.limit){
+				this.limit = this.in.read(this.buf, 0, this.buf.length);
+				this.position = 0;
+				if(this.limit <= 0){
+					this.limit = 0;
+					return -1;
+				}
+			}
+			return this.buf[this.position];
+		}
+
+		private void skipSpaces() throws IOException{
+			int c;
+			while((c = this.peek()) == ' ' || c == '\t' || c == '\r') this.position++;
+		}
+
+		private void skipLine() throws IOException{
+			int c;
+			while((c = this.peek()) != -1){
+				this.position++;
+				if(c == '\n') break;
+			}
+			this.line++;
+		}
+
+		/**
+		 * Moves to the start of the next line holding data, skipping blank lines and those starting with the comment character.
+		 * @return False at the end of the input.
+		 */
+		boolean nextLine(char comment) throws IOException{
+			while(true){
+				this.skipSpaces();
+				int c = this.peek();
+				if(c == -1) return false;
+				if(c == '\n' || c == comment) this.skipLine();
+				else return true;
+			}
+		}
+
+		/**
+		 * Determines whether only spaces are left on the line, and if so consumes it.
+		 */
+		boolean endOfLine() throws IOException{
+			this.skipSpaces();
+			int c = this.peek();
+			if(c == -1) return true;
+			if(c != '\n') return false;
+
+			this.position++;
+			this.line++;
+			return true;
+		}
+
+		/**
+		 * Reads the first line whole, for the Matrix Market banner.
+		 */
+		String bannerLine() throws IOException{
+			StringBuilder s = new StringBuilder();
+			int c;
+			while((c = this.peek()) != -1){
+				this.position++;
+				if(c == '\n') break;
+				s.append((char)c);
+			}
+			this.line++;
+			return s.toString();
+		}
+
+		long nextLong() throws IOException{
+			this.skipSpaces();
+			int c = this.peek();
+
+			boolean negative = c == '-';
+			if(negative || c == '+'){
+				this.position++;
+				c = this.peek();
+			}
+			if(c < '0' || c > '9') throw this.error("Expected a number");
+
+			long value = 0;
+			while((c = this.peek()) >= '0' && c <= '9'){
+				if(value > (Long.MAX_VALUE - (c - '0')) / 10) throw this.error("Number too large");
+				value = 10*value + (c - '0');
+				this.position++;
+			}
+			this.checkSeparator(c);
+
+			return negative ? -value : value;
+		}
+
+		double nextDouble() throws IOException{
+			this.skipSpaces();
+			int c = this.peek();
+
+			boolean negative = c == '-';
+			if(negative || c == '+'){
+				this.position++;
+				c = this.peek();
+			}
+
+			double value = 0;
+			int digits = 0;
+			while((c = this.peek()) >= '0' && c <= '9'){
+				value = 10*value + (c - '0');
+				this.position++;
+				digits++;
+			}
+			if(c == '.'){
+				this.position++;
+				double scale = 1;
+				while((c = this.peek()) >= '0' && c <= '9'){
+					scale /= 10;
+					value += (c - '0') * scale;
+					this.position++;
+					digits++;
+				}
+			}
+			if(digits == 0) throw this.error("Expected a number");
+
+			if(c == 'e' || c == 'E'){
+				this.position++;
+				value *= Math.pow(10, this.nextLong());
+				c = this.peek();
+			}
+			this.checkSeparator(c);
+
+			return negative ? -value : value;
+		}
+
+		private void checkSeparator(int c) throws IOException{
+			if(c != -1 && c != ' ' && c != '\t' && c != '\r' && c != '\n') throw this.error("Unexpected character '"+(char)c+"'");
+		}
+
+		IOException error(String msg){
+			return new IOException(msg+" on line "+(this.line + 1));
+		}
+	}
+
+}
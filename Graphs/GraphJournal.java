@@ -0,0 +1,779 @@
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.zip.CRC32;
+
+
+/**
+ * Makes the mutations of a Graph durable with a write ahead log and snapshot checkpoints kept in one directory.
+ * The journal listens to the graph and appends a small binary record for every insertVertex, insertEdge, removeEdge, removeVertex
+ * and setWeight. Records are batched in memory and group committed: a whole batch is written as one checksummed frame and
+ * made durable by a single FileChannel#force, when the batch fills, when the commit interval has passed or when commit is called.
+ * Once a number of records or an interval has passed since the last snapshot, checkpoint writes a compact binary snapshot of the
+ * whole graph and starts an empty log, so recover only loads the latest snapshot in bulk and replays the short log written after it. A frame torn by a crash
+ * fails its checksum and is cut off, so recovery stops at the last batch that was committed.
+ * Vertices and edges are identified by vertex name, so the names in the graph must be unique. Changes made directly to the
+ * public lists or to Edge.weight are not seen, and neither are the external keys of Graph#insertVertex(long).
+ * @version 1.0
+ * @see GraphListener
+ * @see GraphJournal#recover(File)
+ *
+ */
+public class GraphJournal implements GraphListener {
+
+	/**
+	 * The first four bytes of a snapshot, "GJSN" read as an int.
+	 */
+	public static final int SNAPSHOT_MAGIC = 0x4e534a47;
+
+	/**
+	 * The first four bytes of a log, "GJLG" read as an int.
+	 */
+	public static final int LOG_MAGIC = 0x474c4a47;
+
+	/**
+	 * The format version written by this class.
+	 */
+	public static final int VERSION = 1;
+
+	private static final int SNAPSHOT_HEADER = 32;
+	private static final int LOG_HEADER = 16;
+
+	/**
+	 * The bytes of a batch, its frame header included.
+	 */
+	private static final int BUFFER = 1 << 20;
+
+	/**
+	 * The bytes before the records of a frame: their length and their CRC32.
+	 */
+	private static final int FRAME_HEADER = 8;
+
+	/**
+	 * The default number of records after which a checkpoint is taken.
+	 */
+	private static final long CHECKPOINT_RECORDS = 1L << 20;
+
+	private static final byte INSERT_VERTEX = 1;
+	private static final byte INSERT_EDGE = 2;
+	private static final byte REMOVE_EDGE = 3;
+	private static final byte SET_WEIGHT = 4;
+	private static final byte REMOVE_VERTEX = 5;
+
+	private final Graph g;
+	private final File directory;
+
+	/**
+	 * The number of the current snapshot and of the log written after it.
+	 */
+	private long sequence;
+
+	private RandomAccessFile file;
+	private FileChannel log;
+
+	/**
+	 * The length of the log, kept here so that no record has to ask the channel.
+	 */
+	private long logBytes;
+
+	/**
+	 * The batch being collected, records after a frame header left blank until commit.
+	 */
+	private final ByteBuffer batch = ByteBuffer.allocateDirect(BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+	private final CRC32 crc = new CRC32();
+
+	private long commitInterval = 10000000L;
+	private long lastCommit;
+
+	/**
+	 * The records logged since the last snapshot, and the bounds that trigger the next checkpoint.
+	 */
+	private long records;
+	private long checkpointRecords = CHECKPOINT_RECORDS;
+	private long checkpointInterval = 600000000000L;
+	private long lastCheckpoint;
+
+	/**
+	 * The error a listener call ran into; the journal refuses any further mutation after one.
+	 */
+	private IOException failure;
+
+	private GraphJournal(Graph g, File directory){
+		this.g = g;
+		this.directory = directory;
+		this.batch.position(FRAME_HEADER);
+		this.lastCommit = System.nanoTime();
+		this.lastCheckpoint = this.lastCommit;
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Starts journaling the graph in an empty directory: the graph is written as the first snapshot and every later mutation
+	 * made through its methods is logged.
+	 * @see GraphJournal#recover(File)
+	 * @param g The graph to be journaled.
+	 * @param directory The directory for the snapshots and logs, created if missing.
+	 * @return GraphJournal
+	 * @throws IOException If the directory already holds a journal or the snapshot can't be written.
+	 */
+	public static GraphJournal create(Graph g, File directory) throws IOException{
+		if(g == null) throw new NullPointerException("Can't journal a null graph");
+		if(directory == null) throw new NullPointerException("Passed File is null");
+
+		Hashtable<Integer,Vertex> names = new Hashtable<Integer,Vertex>();
+		for(Vertex v : g.vertices)
+			if(names.put(v.name, v) != null) throw new IllegalArgumentException("Vertex name "+v.name+" is not unique");
+
+		if(!directory.isDirectory() && !directory.mkdirs()) throw new IOException("Can't create "+directory);
+		if(GraphJournal.latestSnapshot(directory) != -1) throw new IOException(directory+" already holds a journal");
+
+		GraphJournal j = new GraphJournal(g, directory);
+		j.writeSnapshot(0);
+		j.openLog(0, true);
+		g.addGraphListener(j);
+		return j;
+	}
+
+	/**
+	 * Rebuilds the graph of a journal: the latest snapshot is loaded and the committed records of its log are replayed.
+	 * A torn last frame is cut off, older snapshots and logs left by an interrupted checkpoint are deleted, and the returned
+	 * journal goes on logging the mutations of the recovered graph.
+	 * @see GraphJournal#graph()
+	 * @param directory The directory passed to create.
+	 * @return GraphJournal
+	 * @throws IOException If there is no snapshot, a file is corrupt or the log doesn't match its snapshot.
+	 */
+	public static GraphJournal recover(File directory) throws IOException{
+		if(directory == null) throw new NullPointerException("Passed File is null");
+
+		long sequence = GraphJournal.latestSnapshot(directory);
+		if(sequence == -1) throw new IOException("No snapshot in "+directory);
+
+		File snapshot = GraphJournal.snapshotFile(directory, sequence);
+		GraphJournal j = new GraphJournal(GraphJournal.readSnapshot(snapshot, sequence), directory);
+
+		// A crash between writing a snapshot and creating its log leaves no log
+		boolean fresh = !GraphJournal.logFile(directory, sequence).exists();
+		j.openLog(sequence, fresh);
+		try {
+			if(!fresh) j.replay();
+		} catch(IOException e){
+			j.file.close();
+			throw e;
+		}
+
+		GraphJournal.deleteOlder(directory, sequence);
+		j.g.addGraphListener(j);
+		return j;
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the journaled graph.
+	 */
+	public Graph graph(){
+		return this.g;
+	}
+
+	/**
+	 * Sets how long a batch may collect records before the next mutation commits it. With 0 every mutation is committed on its own.
+	 * @param millis The interval in milliseconds.
+	 */
+	public void setCommitInterval(long millis){
+		if(millis < 0) throw new IllegalArgumentException("Commit interval can't be negative");
+		this.commitInterval = millis * 1000000L;
+	}
+
+	/**
+	 * Sets how many records may be logged after a snapshot before the next mutation takes a checkpoint.
+	 * Recovery replays at most this many records, plus those of the interval.
+	 * @param records The number of records, 1048576 by default.
+	 */
+	public void setCheckpointRecords(long records){
+		if(records <= 0) throw new IllegalArgumentException("Checkpoint records must be positive");
+		this.checkpointRecords = records;
+	}
+
+	/**
+	 * Sets how long records may be logged after a snapshot before the next mutation takes a checkpoint.
+	 * @param millis The interval in milliseconds, ten minutes by default.
+	 */
+	public void setCheckpointInterval(long millis){
+		if(millis < 0) throw new IllegalArgumentException("Checkpoint interval can't be negative");
+		this.checkpointInterval = millis * 1000000L;
+	}
+
+	/**
+	 * Writes the records collected so far as one frame and forces it to disk. Every mutation made before the call survives a crash.
+	 * @throws IOException If the log can't be written.
+	 */
+	public void commit() throws IOException{
+		this.checkOpen();
+
+		int length = this.batch.position() - FRAME_HEADER;
+		this.lastCommit = System.nanoTime();
+		if(length == 0) return;
+
+		try {
+			ByteBuffer records = this.batch.duplicate();
+			records.flip().position(FRAME_HEADER);
+			this.crc.reset();
+			this.crc.update(records);
+
+			this.batch.putInt(0, length);
+			this.batch.putInt(4, (int)this.crc.getValue());
+			this.batch.flip();
+			while(this.batch.hasRemaining()) this.log.write(this.batch);
+			this.log.force(false);
+			this.logBytes += FRAME_HEADER + length;
+		} catch(IOException e){
+			this.failure = e;
+			throw e;
+		} finally {
+			this.batch.clear();
+			this.batch.position(FRAME_HEADER);
+		}
+	}
+
+	/**
+	 * Commits, writes a snapshot of the graph and starts an empty log after it, then deletes the previous snapshot and log.
+	 * The snapshot is written to a temporary file and renamed, so a crash at any point leaves a snapshot to recover from.
+	 * @throws IOException If the snapshot or the new log can't be written.
+	 */
+	public void checkpoint() throws IOException{
+		this.commit();
+
+		try {
+			long next = this.sequence + 1;
+			this.writeSnapshot(next);
+
+			this.file.close();
+			this.openLog(next, true);
+			this.records = 0;
+			this.lastCheckpoint = System.nanoTime();
+
+			GraphJournal.deleteOlder(this.directory, next);
+		} catch(IOException e){
+			this.failure = e;
+			throw e;
+		}
+	}
+
+	/**
+	 * Commits, stops listening to the graph and closes the log.
+	 * @throws IOException If the last batch can't be written.
+	 */
+	public void close() throws IOException{
+		if(this.log == null) return;
+
+		try {
+			if(this.failure == null) this.commit();
+		} finally {
+			this.g.removeGraphListener(this);
+			this.file.close();
+			this.log = null;
+		}
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	public void vertexInserted(Graph g, Vertex v){
+		this.record(INSERT_VERTEX, 1).putInt(v.name);
+		this.recorded();
+	}
+
+	public void edgeInserted(Graph g, Edge e){
+		this.record(INSERT_EDGE, 3).putInt(e.a.name).putInt(e.b.name).putInt(e.weight);
+		this.recorded();
+	}
+
+	public void edgeRemoved(Graph g, Edge e){
+		this.record(REMOVE_EDGE, 3).putInt(e.a.name).putInt(e.b.name).putInt(e.weight);
+		this.recorded();
+	}
+
+	public void weightChanged(Graph g, Edge e, int oldWeight){
+		this.record(SET_WEIGHT, 4).putInt(e.a.name).putInt(e.b.name).putInt(oldWeight).putInt(e.weight);
+		this.recorded();
+	}
+
+	public void vertexRemoved(Graph g, Vertex v){
+		this.record(REMOVE_VERTEX, 1).putInt(v.name);
+		this.recorded();
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	private void checkOpen(){
+		if(this.log == null) throw new IllegalStateException("Journal is closed");
+		if(this.failure != null) throw new IllegalStateException("Journal failed, recover it from disk", this.failure);
+	}
+
+	/**
+	 * Starts a record of the given number of ints, committing first if the batch can't hold it.
+	 */
+	private ByteBuffer record(byte op, int ints){
+		this.checkOpen();
+
+		try {
+			if(this.batch.remaining() < 1 + 4*ints) this.commit();
+		} catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
+
+		return this.batch.put(op);
+	}
+
+	/**
+	 * Commits once the commit interval has passed and takes a checkpoint once enough records or time have gone by since the snapshot.
+	 */
+	private void recorded(){
+		this.records++;
+
+		try {
+			long now = System.nanoTime();
+			if(now - this.lastCommit >= this.commitInterval) this.commit();
+			if(this.records >= this.checkpointRecords || now - this.lastCheckpoint >= this.checkpointInterval) this.checkpoint();
+		} catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void openLog(long sequence, boolean fresh) throws IOException{
+		File f = GraphJournal.logFile(this.directory, sequence);
+		this.file = new RandomAccessFile(f, "rw");
+		this.log = this.file.getChannel();
+		this.sequence = sequence;
+
+		if(fresh){
+			ByteBuffer header = ByteBuffer.allocate(LOG_HEADER).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(LOG_MAGIC).putInt(VERSION).putLong(sequence);
+			header.flip();
+			this.log.truncate(0);
+			while(header.hasRemaining()) this.log.write(header);
+			this.log.force(false);
+		} else {
+			this.log.position(this.log.size());
+		}
+		this.logBytes = this.log.position();
+	}
+
+	/**
+	 * Replays the committed frames of the log onto the graph and cuts the log after the last good one.
+	 * Removed edges and vertices are only unlinked from the adjacency of their neighbours while replaying;
+	 * the edge and vertex lists are compacted once at the end instead of an O(E) or O(V) list removal per record.
+	 */
+	private void replay() throws IOException{
+		Input in = new Input(this.log, 0);
+		if(this.log.size() < LOG_HEADER || in.getInt() != LOG_MAGIC) throw new IOException("Not a journal log");
+		int version = in.getInt();
+		if(version < 1 || version > VERSION) throw new IOException("Journal version "+version+" is not supported");
+		if(in.getLong() != this.sequence) throw new IOException("Log doesn't belong to snapshot "+this.sequence);
+
+		Hashtable<Integer,Vertex> names = new Hashtable<Integer,Vertex>();
+		for(Vertex v : this.g.vertices) names.put(v.name, v);
+
+		Hashtable<Object,Boolean> removed = new Hashtable<Object,Boolean>();
+
+		long end = LOG_HEADER;
+		ByteBuffer frame = ByteBuffer.allocate(BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+
+		while(true){
+			//Case: the last frame is torn or was never completed
+			if(!in.read(frame, end, FRAME_HEADER)) break;
+			int length = frame.getInt(0);
+			int checksum = frame.getInt(4);
+			if(length <= 0 || length > BUFFER - FRAME_HEADER || !in.read(frame, end + FRAME_HEADER, length)) break;
+
+			this.crc.reset();
+			this.crc.update(frame);
+			if((int)this.crc.getValue() != checksum) break;
+
+			frame.flip();
+			while(frame.hasRemaining()){
+				this.apply(frame, names, removed);
+				this.records++;
+			}
+			end += FRAME_HEADER + length;
+		}
+
+		if(!removed.isEmpty()){
+			GraphJournal.compact(this.g.edges, removed);
+			GraphJournal.compact(this.g.vertices, removed);
+		}
+
+		this.log.truncate(end);
+		this.log.position(end);
+		this.logBytes = end;
+
+		this.g.V = this.g.vertices.size();
+		this.g.E = this.g.edges.size();
+	}
+
+	/**
+	 * Applies one record. Insertions and weight changes go through the graph's own methods; removals are unlinked from the
+	 * adjacency and put in removed, to be compacted out of the graph's lists after the last record.
+	 */
+	private void apply(ByteBuffer r, Hashtable<Integer,Vertex> names, Hashtable<Object,Boolean> removed) throws IOException{
+		byte op = r.get();
+
+		if(op == INSERT_VERTEX){
+			Vertex v = new Vertex(r.getInt());
+			this.g.vertices.add(v);
+			this.g.vertexLabels.put(v, Label.UNEXPLORED);
+			names.put(v.name, v);
+		} else if(op == REMOVE_VERTEX){
+			Vertex v = names.remove(r.getInt());
+			if(v == null) throw new IOException("Log removes a vertex that doesn't exist");
+
+			// Only the neighbours' lists are searched; the vertex's own are dropped whole
+			for(Edge e : v.out)
+				if(removed.put(e, Boolean.TRUE) == null) e.b.in.remove(e);
+			for(Edge e : v.in)
+				if(removed.put(e, Boolean.TRUE) == null) e.a.out.remove(e);
+			v.out.clear();
+			v.in.clear();
+			removed.put(v, Boolean.TRUE);
+		} else if(op == INSERT_EDGE){
+			Vertex a = GraphJournal.vertex(names, r.getInt());
+			Vertex b = GraphJournal.vertex(names, r.getInt());
+			this.g.insertEdge(a, b, r.getInt());
+		} else if(op == REMOVE_EDGE){
+			Vertex a = GraphJournal.vertex(names, r.getInt());
+			Vertex b = GraphJournal.vertex(names, r.getInt());
+			GraphJournal.unlink(GraphJournal.edge(a, b, r.getInt()), removed);
+		} else if(op == SET_WEIGHT){
+			Vertex a = GraphJournal.vertex(names, r.getInt());
+			Vertex b = GraphJournal.vertex(names, r.getInt());
+			Edge e = GraphJournal.edge(a, b, r.getInt());
+			this.g.setWeight(e, r.getInt());
+		} else {
+			throw new IOException("Unknown log record "+op);
+		}
+	}
+
+	/**
+	 * Takes the edge out of the adjacency of its endpoints and marks it removed.
+	 */
+	private static void unlink(Edge e, Hashtable<Object,Boolean> removed){
+		if(removed.put(e, Boolean.TRUE) != null) return;
+		e.a.out.remove(e);
+		e.b.in.remove(e);
+	}
+
+	/**
+	 * Drops the marked elements from the list in one pass, keeping the order of the others.
+	 */
+	private static <T> void compact(ArrayList<T> list, Hashtable<Object,Boolean> removed){
+		int k = 0;
+		for(int i = 0; i < list.size(); i++){
+			T x = list.get(i);
+			if(!removed.containsKey(x)) list.set(k++, x);
+		}
+		list.subList(k, list.size()).clear();
+	}
+
+	private static Vertex vertex(Hashtable<Integer,Vertex> names, int name) throws IOException{
+		Vertex v = names.get(name);
+		if(v == null) throw new IOException("Log refers to vertex "+name+" which doesn't exist");
+		return v;
+	}
+
+	/**
+	 * Finds an edge a -> b of the weight. Parallel edges that match are alike, so any of them will do.
+	 */
+	private static Edge edge(Vertex a, Vertex b, int w) throws IOException{
+		for(Edge e : a.out)
+			if(e.b == b && e.weight == w) return e;
+		throw new IOException("Log refers to edge "+a.name+" -> "+b.name+" which doesn't exist");
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Writes the snapshot: a 32 byte header, a (name, out degree, in degree) triple per vertex and an (origin, destination, weight)
+	 * triple per edge with the endpoints given by position. Edges to vertices that are not in the graph are left out.
+	 */
+	private void writeSnapshot(long sequence) throws IOException{
+		// Names are unique, so a LongIdMap of them gives every vertex its position without boxing
+		int n = this.g.vertices.size();
+		LongIdMap index = new LongIdMap(n);
+		for(int i = 0; i < n; i++)
+			if(index.add(this.g.vertices.get(i).name) != i) throw new IllegalStateException("Vertex name "+this.g.vertices.get(i).name+" is not unique");
+
+		int[] out = new int[n];
+		int[] in = new int[n];
+		int m = 0;
+
+		for(Edge e : this.g.edges){
+			int a = index.get(e.a.name);
+			int b = index.get(e.b.name);
+			if(a == -1 || b == -1) continue;
+
+			out[a]++;
+			in[b]++;
+			m++;
+		}
+
+		File tmp = new File(this.directory, "snapshot."+sequence+".tmp");
+		RandomAccessFile f = new RandomAccessFile(tmp, "rw");
+		try {
+			FileChannel channel = f.getChannel();
+			channel.truncate(0);
+
+			Output o = new Output(channel);
+			o.putInt(SNAPSHOT_MAGIC).putInt(VERSION).putInt(n).putInt(m).putLong(sequence).putLong(0);
+			for(int i = 0; i < n; i++) o.putInt(this.g.vertices.get(i).name).putInt(out[i]).putInt(in[i]);
+
+			for(Edge e : this.g.edges){
+				int a = index.get(e.a.name);
+				int b = index.get(e.b.name);
+				if(a == -1 || b == -1) continue;
+
+				o.putInt(a).putInt(b).putInt(e.weight);
+			}
+
+			o.flush();
+			channel.force(true);
+		} finally {
+			f.close();
+		}
+
+		File snapshot = GraphJournal.snapshotFile(this.directory, sequence);
+		Files.move(tmp.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Loads a snapshot, sizing every adjacency list up front from the stored degrees.
+	 */
+	private static Graph readSnapshot(File snapshot, long sequence) throws IOException{
+		RandomAccessFile f = new RandomAccessFile(snapshot, "r");
+		try {
+			FileChannel channel = f.getChannel();
+			if(channel.size() < SNAPSHOT_HEADER) throw new IOException("Snapshot is too short");
+
+			Input in = new Input(channel, 0);
+			if(in.getInt() != SNAPSHOT_MAGIC) throw new IOException("Not a journal snapshot");
+			int version = in.getInt();
+			if(version < 1 || version > VERSION) throw new IOException("Snapshot version "+version+" is not supported");
+			int n = in.getInt();
+			int m = in.getInt();
+			if(n < 0 || m < 0) throw new IOException("Negative vertex or edge count in the snapshot");
+			if(in.getLong() != sequence) throw new IOException("Snapshot "+snapshot+" has the wrong sequence number");
+			in.getLong();
+
+			if(channel.size() != SNAPSHOT_HEADER + 12L*n + 12L*m) throw new IOException("Snapshot is truncated");
+
+			Graph g = new Graph();
+			g.vertices.ensureCapacity(n);
+			for(int i = 0; i < n; i++){
+				Vertex v = new Vertex(in.getInt());
+				v.out.ensureCapacity(in.getInt());
+				v.in.ensureCapacity(in.getInt());
+				g.vertices.add(v);
+			}
+
+			g.edges.ensureCapacity(m);
+			for(int i = 0; i < m; i++){
+				int a = in.getInt();
+				int b = in.getInt();
+				int w = in.getInt();
+				if(a < 0 || a >= n || b < 0 || b >= n) throw new IOException("Snapshot edge "+i+" is out of range");
+
+				Vertex A = g.vertices.get(a);
+				Vertex B = g.vertices.get(b);
+				Edge e = new Edge(A, B, w);
+
+				g.edges.add(e);
+				A.out.add(e);
+				B.in.add(e);
+			}
+
+			g.V = n;
+			g.E = m;
+			g.resetGraphLabels();
+			return g;
+		} finally {
+			f.close();
+		}
+	}
+
+	private static File snapshotFile(File directory, long sequence){
+		return new File(directory, "snapshot."+sequence);
+	}
+
+	private static File logFile(File directory, long sequence){
+		return new File(directory, "journal."+sequence);
+	}
+
+	/**
+	 * Returns the sequence number of the newest snapshot in the directory, or -1 if there is none.
+	 */
+	private static long latestSnapshot(File directory){
+		long latest = -1;
+		String[] names = directory.list();
+		if(names == null) return latest;
+
+		for(String s : names){
+			long n = GraphJournal.sequenceOf(s, "snapshot.");
+			if(n > latest) latest = n;
+		}
+		return latest;
+	}
+
+	/**
+	 * Deletes the snapshots, logs and temporary files older than the sequence number.
+	 */
+	private static void deleteOlder(File directory, long sequence){
+		String[] names = directory.list();
+		if(names == null) return;
+
+		for(String s : names){
+			long n = Math.max(GraphJournal.sequenceOf(s, "snapshot."), GraphJournal.sequenceOf(s, "journal."));
+			if(s.startsWith("snapshot.") && s.endsWith(".tmp")) new File(directory, s).delete();
+			else if(n != -1 && n < sequence) new File(directory, s).delete();
+		}
+	}
+
+	/**
+	 * Returns the number after the prefix, or -1 if the file name is not the prefix followed by a number.
+	 */
+	private static long sequenceOf(String name, String prefix){
+		if(!name.startsWith(prefix) || name.length() == prefix.length() || name.length() > prefix.length() + 18) return -1;
+
+		long n = 0;
+		for(int i = prefix.length(); i < name.length(); i++){
+			char c = name.charAt(i);
+			if(c < '0' || c > '9') return -1;
+			n = 10*n + (c - '0');
+		}
+		return n;
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Writes little endian numbers to a channel through one direct buffer.
+	 */
+	private static class Output {
+
+		private final FileChannel channel;
+		private final ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+
+		Output(FileChannel channel){
+			this.channel = channel;
+		}
+
+		Output putInt(int x) throws IOException{
+			if(this.buf.remaining() < 4) this.flush();
+			this.buf.putInt(x);
+			return this;
+		}
+
+		Output putLong(long x) throws IOException{
+			if(this.buf.remaining() < 8) this.flush();
+			this.buf.putLong(x);
+			return this;
+		}
+
+		void flush() throws IOException{
+			this.buf.flip();
+			while(this.buf.hasRemaining()) this.channel.write(this.buf);
+			this.buf.clear();
+		}
+	}
+
+	/**
+	 * Reads little endian numbers from a channel through one direct buffer, starting at a position.
+	 */
+	private static class Input {
+
+		private final FileChannel channel;
+		private final ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+		private long position;
+
+		Input(FileChannel channel, long position){
+			this.channel = channel;
+			this.position = position;
+			this.buf.flip();
+		}
+
+		private void fill(int n) throws IOException{
+			if(this.buf.remaining() >= n) return;
+
+			this.buf.compact();
+			while(this.buf.position() < n){
+				int r = this.channel.read(this.buf, this.position);
+				if(r < 0) throw new IOException("Unexpected end of file");
+				this.position += r;
+			}
+			this.buf.flip();
+		}
+
+		int getInt() throws IOException{
+			this.fill(4);
+			return this.buf.getInt();
+		}
+
+		long getLong() throws IOException{
+			this.fill(8);
+			return this.buf.getLong();
+		}
+
+		/**
+		 * Reads the n bytes at the file position into the start of dst, bypassing the buffer.
+		 * @return False if the file ends first.
+		 */
+		boolean read(ByteBuffer dst, long at, int n) throws IOException{
+			dst.clear();
+			dst.limit(n);
+
+			long p = at;
+			while(dst.hasRemaining()){
+				int r = this.channel.read(dst, p);
+				if(r < 0) return false;
+				p += r;
+			}
+
+			dst.flip();
+			return true;
+		}
+	}
+
+}
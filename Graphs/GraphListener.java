@@ -0,0 +1,50 @@
+
+
+/**
+ * Receives the mutations made through a Graph's methods.
+ * Objects that keep derived state about a graph, like a maintained minimum spanning tree, register themselves
+ * with Graph#addGraphListener(GraphListener) to stay up to date.
+ * Note: changes made directly to the public lists or to Edge.weight are not seen; use Graph#setWeight(Edge, int) instead.
+ * @version 1.0
+ * @see Graph#addGraphListener(GraphListener)
+ *
+ */
+public interface GraphListener {
+
+	/**
+	 * Called after a vertex has been inserted.
+	 * @param g The graph that changed.
+	 * @param v The new vertex.
+	 */
+	public void vertexInserted(Graph g, Vertex v);
+
+	/**
+	 * Called after an edge has been inserted.
+	 * @param g The graph that changed.
+	 * @param e The new edge.
+	 */
+	public void edgeInserted(Graph g, Edge e);
+
+	/**
+	 * Called after an edge has been removed.
+	 * @param g The graph that changed.
+	 * @param e The removed edge.
+	 */
+	public void edgeRemoved(Graph g, Edge e);
+
+	/**
+	 * Called after the weight of an edge has been changed.
+	 * @param g The graph that changed.
+	 * @param e The edge, already holding its new weight.
+	 * @param oldWeight The weight of the edge before the change.
+	 */
+	public void weightChanged(Graph g, Edge e, int oldWeight);
+
+	/**
+	 * Called after a vertex, and before that each of its edges, has been removed.
+	 * @param g The graph that changed.
+	 * @param v The removed vertex.
+	 */
+	public void vertexRemoved(Graph g, Vertex v);
+
+}
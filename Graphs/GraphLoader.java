@@ -0,0 +1,296 @@
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+
+/**
+ * Loads graphs from edge list files in the format read by Graph(File): the number of vertices, the number of edges and then
+ * one line per edge with the origin, the destination and the weight separated by tabs or spaces.
+ * The file is memory mapped through a FileChannel and cut into newline aligned chunks that are parsed in parallel straight from
+ * the mapped bytes, without Scanner's regular expressions. A last sequential pass builds the adjacency from the parsed chunks.
+ * @version 1.0
+ * @see Graph#Graph(File)
+ * @see CSRGraph
+ *
+ */
+public class GraphLoader {
+
+	/**
+	 * The number of bytes each parallel task parses.
+	 */
+	private static final int CHUNK = 1 << 24;
+
+	/**
+	 * How far past its chunk a task may read to finish its last line.
+	 */
+	private static final int LINE_MARGIN = 1 << 12;
+
+	private GraphLoader(){}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Loads the edge list into a new Graph. Vertex i is named i and the edges keep the order of the file.
+	 * @see GraphLoader#loadCSR(File)
+	 * @param input The edge list file.
+	 * @return Graph
+	 * @throws IOException If the file can't be read or is not a valid edge list.
+	 */
+	public static Graph load(File input) throws IOException{
+		Graph g = new Graph();
+		GraphLoader.load(input, g);
+		return g;
+	}
+
+	/**
+	 * Loads the edge list straight into a CSRGraph, without creating any Vertex or Edge objects.
+	 * @see GraphLoader#load(File)
+	 * @param input The edge list file.
+	 * @return CSRGraph
+	 * @throws IOException If the file can't be read or is not a valid edge list.
+	 */
+	public static CSRGraph loadCSR(File input) throws IOException{
+		EdgeList list = GraphLoader.parse(input);
+
+		int[] offsets = new int[list.V + 1];
+		for(int c = 0; c < list.chunks.length; c++){
+			int[] t = list.chunks[c];
+			for(int i = 0; i < list.sizes[c]; i += 3) offsets[t[i] + 1]++;
+		}
+		for(int v = 0; v < list.V; v++) offsets[v + 1] += offsets[v];
+
+		int[] targets = new int[list.E];
+		int[] weights = new int[list.E];
+		int[] fill = Arrays.copyOf(offsets, list.V);
+
+		for(int c = 0; c < list.chunks.length; c++){
+			int[] t = list.chunks[c];
+			for(int i = 0; i < list.sizes[c]; i += 3){
+				int k = fill[t[i]]++;
+				targets[k] = t[i + 1];
+				weights[k] = t[i + 2];
+			}
+		}
+
+		return new CSRGraph(list.V, offsets, targets, weights);
+	}
+
+	/**
+	 * Fills an empty graph with the edge list.
+	 */
+	static void load(File input, Graph g) throws IOException{
+		EdgeList list = GraphLoader.parse(input);
+
+		// Sizing every list up front saves the copies of growing them one edge at a time
+		int[] outDegree = new int[list.V];
+		int[] inDegree = new int[list.V];
+		for(int c = 0; c < list.chunks.length; c++){
+			int[] t = list.chunks[c];
+			for(int i = 0; i < list.sizes[c]; i += 3){
+				outDegree[t[i]]++;
+				inDegree[t[i + 1]]++;
+			}
+		}
+
+		g.vertices.ensureCapacity(list.V);
+		for(int i = 0; i < list.V; i++){
+			Vertex v = new Vertex(i);
+			v.out.ensureCapacity(outDegree[i]);
+			v.in.ensureCapacity(inDegree[i]);
+			g.vertices.add(v);
+		}
+
+		g.edges.ensureCapacity(list.E);
+		for(int c = 0; c < list.chunks.length; c++){
+			int[] t = list.chunks[c];
+			for(int i = 0; i < list.sizes[c]; i += 3){
+				Vertex a = g.vertices.get(t[i]);
+				Vertex b = g.vertices.get(t[i + 1]);
+				Edge e = new Edge(a, b, t[i + 2]);
+
+				g.edges.add(e);
+				a.out.add(e);
+				b.in.add(e);
+			}
+		}
+
+		g.V = list.V;
+		g.E = list.E;
+		g.resetGraphLabels();
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * The edges parsed from a file: chunk c holds sizes[c]/3 (origin, destination, weight) triples.
+	 */
+	private static class EdgeList {
+		int V;
+		int E;
+		int[][] chunks;
+		int[] sizes;
+	}
+
+	/**
+	 * Reads the header and parses the edge lines of every chunk in parallel.
+	 */
+	private static EdgeList parse(File input) throws IOException{
+		if(input == null) throw new NullPointerException("Passed File is null");
+
+		RandomAccessFile file = new RandomAccessFile(input, "r");
+		try {
+			final FileChannel channel = file.getChannel();
+			final long size = channel.size();
+
+			// The header is the first two numbers, wherever the line breaks are
+			MappedByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, LINE_MARGIN));
+			int[] p = new int[]{ 0 };
+			final EdgeList list = new EdgeList();
+			list.V = GraphLoader.nextHeaderInt(head, p);
+			list.E = GraphLoader.nextHeaderInt(head, p);
+			if(list.V < 0 || list.E < 0) throw new IOException("Negative vertex or edge count in the header");
+
+			final long body = p[0];
+			long n = (size - body + CHUNK - 1) / CHUNK;
+			if(n > Integer.MAX_VALUE) throw new IOException("File is too large");
+
+			list.chunks = new int[(int)n][];
+			list.sizes = new int[(int)n];
+
+			try {
+				ParallelRange.run(ForkJoinPool.commonPool(), (int)n, 1, new ParallelRange.Body() {
+					public void run(int lo, int hi) {
+						for(int c = lo; c < hi; c++){
+							long start = body + (long)c * CHUNK;
+							long end = Math.min(size, start + CHUNK);
+							try {
+								GraphLoader.parseChunk(channel, list, c, start == body, start, end, size);
+							} catch (IOException ex) {
+								throw new UncheckedIOException(ex);
+							}
+						}
+					}
+				});
+			} catch (UncheckedIOException ex) {
+				throw ex.getCause();
+			}
+
+			long m = 0;
+			for(int c = 0; c < n; c++) m += list.sizes[c] / 3;
+			if(m != list.E) throw new IOException("Header announces "+list.E+" edges but the file has "+m);
+
+			return list;
+		} finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Parses the lines starting in [start, end). Unless first, the line cut by start belongs to the chunk before.
+	 */
+	private static void parseChunk(FileChannel channel, EdgeList list, int c, boolean first,
+			long start, long end, long size) throws IOException{
+
+		long from = first ? start : start - 1;
+		long to = Math.min(size, end + LINE_MARGIN);
+		MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+
+		int limit = (int)(to - from);
+		int own = (int)(end - from);
+		int p = 0;
+
+		if(!first){
+			while(p < limit && buf.get(p) != '\n') p++;
+			p++;
+		}
+
+		int[] t = new int[Math.max(48, own / 6)];
+		int n = 0;
+		int[] line = new int[3];
+
+		while(p < own){
+			int k = 0;
+
+			while(true){
+				byte x = 0;
+				while(p < limit && ((x = buf.get(p)) == ' ' || x == '\t' || x == '\r')) p++;
+				if(p >= limit || x == '\n') break;
+
+				if(k == 3) throw new IOException("More than three numbers on an edge line near byte "+(from + p));
+
+				boolean negative = x == '-';
+				if(negative) p++;
+
+				long value = 0;
+				int digits = 0;
+				while(p < limit && (x = buf.get(p)) >= '0' && x <= '9'){
+					value = 10*value + (x - '0');
+					if(value > Integer.MAX_VALUE + 1L) throw new IOException("Number too large near byte "+(from + p));
+					p++;
+					digits++;
+				}
+
+				if(digits == 0 || (p < limit && x != ' ' && x != '\t' && x != '\r' && x != '\n'))
+					throw new IOException("Unexpected character near byte "+(from + p));
+
+				value = negative ? -value : value;
+				if(value > Integer.MAX_VALUE) throw new IOException("Number too large near byte "+(from + p));
+				line[k++] = (int)value;
+			}
+
+			if(p >= limit && to < size) throw new IOException("Edge line longer than "+LINE_MARGIN+" bytes near byte "+from);
+			p++;
+
+			//Case: blank line
+			if(k == 0) continue;
+			if(k != 3) throw new IOException("Edge line with "+k+" numbers near byte "+(from + p));
+
+			if(line[0] < 0 || line[0] >= list.V || line[1] < 0 || line[1] >= list.V)
+				throw new IOException("Edge "+line[0]+" "+line[1]+" has a vertex out of range");
+
+			if(n + 3 > t.length) t = Arrays.copyOf(t, 2*t.length);
+			t[n++] = line[0];
+			t[n++] = line[1];
+			t[n++] = line[2];
+		}
+
+		list.chunks[c] = t;
+		list.sizes[c] = n;
+	}
+
+	/**
+	 * Parses the next non negative number of the header and moves p[0] past it.
+	 */
+	private static int nextHeaderInt(MappedByteBuffer buf, int[] p) throws IOException{
+		int limit = buf.limit();
+		byte x = 0;
+
+		while(p[0] < limit && ((x = buf.get(p[0])) == ' ' || x == '\t' || x == '\r' || x == '\n')) p[0]++;
+		if(p[0] >= limit || x < '0' || x > '9') throw new IOException("Missing vertex or edge count in the header");
+
+		long value = 0;
+		while(p[0] < limit && (x = buf.get(p[0])) >= '0' && x <= '9'){
+			value = 10*value + (x - '0');
+			if(value > Integer.MAX_VALUE) throw new IOException("Header count too large");
+			p[0]++;
+		}
+
+		return (int)value;
+	}
+
+}
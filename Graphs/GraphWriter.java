@@ -0,0 +1,321 @@
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Hashtable;
+
+
+/**
+ * Streams graphs, and the graphs algorithms return such as spanningForest or a MinimumSpanningTree's tree, out through a
+ * WritableByteChannel in the README edge list format, the binary format of MappedGraph and Graphviz DOT.
+ * Numbers are formatted straight into one direct buffer of BUFFER bytes that is written out whenever it fills, so nothing is
+ * held per edge and no String is built per edge; the edge list and binary writers of a Graph only add an index of its vertices. The binary format is copied out array by array in bulk.
+ * Channels are written to but not closed.
+ * @version 1.0
+ * @see Graph#printGraph(boolean)
+ * @see GraphLoader
+ * @see MappedGraph#open(java.io.File)
+ *
+ */
+public class GraphWriter {
+
+	/**
+	 * The size of the output buffer.
+	 */
+	private static final int BUFFER = 1 << 20;
+
+	private final WritableByteChannel out;
+	private final ByteBuffer buf;
+
+	private GraphWriter(WritableByteChannel out){
+		if(out == null) throw new NullPointerException("Passed channel is null");
+
+		this.out = out;
+		this.buf = ByteBuffer.allocateDirect(BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Writes the graph in the format read by Graph(File): V, E and a tab separated origin, destination and weight line per edge.
+	 * Vertices are numbered by their position in the adjacency list; edges to vertices that are not in it are left out.
+	 * @see GraphLoader#load(java.io.File)
+	 * @param g The graph to be written.
+	 * @param out The channel to write to.
+	 * @throws IOException If the channel can't be written.
+	 */
+	public static void writeEdgeList(Graph g, WritableByteChannel out) throws IOException{
+		Hashtable<Vertex,Integer> index = g.vertexIndices();
+
+		int m = 0;
+		for(Edge e : g.edges)
+			if(index.containsKey(e.a) && index.containsKey(e.b)) m++;
+
+		GraphWriter w = new GraphWriter(out);
+		w.number(g.vertices.size()).text('\n').number(m).text('\n');
+
+		for(Edge e : g.edges){
+			Integer a = index.get(e.a);
+			Integer b = index.get(e.b);
+			if(a == null || b == null) continue;
+
+			w.number(a).text('\t').number(b).text('\t').number(e.weight).text('\n');
+		}
+
+		w.flush();
+	}
+
+	/**
+	 * Writes the snapshot in the format read by Graph(File).
+	 * @param g The graph to be written.
+	 * @param out The channel to write to.
+	 * @throws IOException If the channel can't be written.
+	 */
+	public static void writeEdgeList(CSRGraph g, WritableByteChannel out) throws IOException{
+		GraphWriter w = new GraphWriter(out);
+		w.number(g.V).text('\n').number(g.E).text('\n');
+
+		for(int v = 0; v < g.V; v++)
+			for(int k = g.outOffsets[v]; k < g.outOffsets[v + 1]; k++)
+				w.number(v).text('\t').number(g.outTargets[k]).text('\t').number(g.outWeights[k]).text('\n');
+
+		w.flush();
+	}
+
+	/**
+	 * Writes the graph in the binary format opened by MappedGraph#open(File), with vertices numbered by their position in the adjacency list.
+	 * The arrays are streamed from the outgoing lists, which are walked once per array; besides the buffer only the vertex index is held.
+	 * Edges to vertices that are not in the adjacency list are left out.
+	 * @param g The graph to be written.
+	 * @param out The channel to write to.
+	 * @throws IOException If the channel can't be written.
+	 */
+	public static void writeBinary(Graph g, WritableByteChannel out) throws IOException{
+		Hashtable<Vertex,Integer> index = g.vertexIndices();
+		int V = g.vertices.size();
+
+		int m = 0;
+		boolean dangling = false;
+		for(Vertex v : g.vertices)
+			for(Edge e : v.out){
+				if(index.containsKey(e.b)) m++;
+				else dangling = true;
+			}
+
+		GraphWriter w = new GraphWriter(out);
+		w.header(V, m);
+
+		// Without dangling edges a vertex's offset only needs the size of its list
+		int offset = 0;
+		w.integer(offset);
+		for(Vertex v : g.vertices){
+			if(!dangling) offset += v.out.size();
+			else for(Edge e : v.out) if(index.containsKey(e.b)) offset++;
+			w.integer(offset);
+		}
+
+		for(Vertex v : g.vertices)
+			for(Edge e : v.out){
+				Integer b = index.get(e.b);
+				if(b != null) w.integer(b);
+			}
+
+		for(Vertex v : g.vertices)
+			for(Edge e : v.out)
+				if(!dangling || index.containsKey(e.b)) w.integer(e.weight);
+
+		w.flush();
+	}
+
+	/**
+	 * Writes the snapshot in the binary format opened by MappedGraph#open(File).
+	 * @param g The graph to be written.
+	 * @param out The channel to write to.
+	 * @throws IOException If the channel can't be written.
+	 */
+	public static void writeBinary(CSRGraph g, WritableByteChannel out) throws IOException{
+		GraphWriter w = new GraphWriter(out);
+		w.header(g.V, g.E);
+
+		w.ints(g.outOffsets, g.V + 1);
+		w.ints(g.outTargets, g.E);
+		w.ints(g.outWeights, g.E);
+
+		w.flush();
+	}
+
+	/**
+	 * Writes the graph in Graphviz DOT, naming every node after its vertex's name and labelling every edge with its weight.
+	 * An undirected graph is written as a graph with one edge per pair of conjugates, a directed one as a digraph.
+	 * Conjugates are paired by looking at the adjacency of the edge's two ends only, so nothing is kept per edge: an edge is written
+	 * from the end with the smaller name, and from the other end only where it outnumbers its conjugates of the same weight.
+	 * Edges between distinct vertices of the same name are all written.
+	 * @param g The graph to be written.
+	 * @param unDirectedGraph True if the graph is undirected; false otherwise.
+	 * @param out The channel to write to.
+	 * @throws IOException If the channel can't be written.
+	 */
+	public static void writeDOT(Graph g, boolean unDirectedGraph, WritableByteChannel out) throws IOException{
+		GraphWriter w = new GraphWriter(out);
+		String arrow = unDirectedGraph ? " -- " : " -> ";
+
+		w.text(unDirectedGraph ? "graph G {\n" : "digraph G {\n");
+		for(Vertex v : g.vertices) w.text('\t').number(v.name).text(";\n");
+
+		for(Edge e : g.edges){
+			if(unDirectedGraph && !GraphWriter.leads(e)) continue;
+
+			w.text('\t').number(e.a.name).text(arrow).number(e.b.name).text(" [label=").number(e.weight).text("];\n");
+		}
+
+		w.text("}\n");
+		w.flush();
+	}
+
+	/**
+	 * Writes the tree of a MinimumSpanningTree in Graphviz DOT.
+	 * @see GraphWriter#writeDOT(Graph, boolean, WritableByteChannel)
+	 * @param t The minimum spanning tree.
+	 * @param unDirectedGraph True if the tree holds the conjugate of every edge; false otherwise.
+	 * @param out The channel to write to.
+	 * @throws IOException If the channel can't be written.
+	 */
+	public static void writeDOT(MinimumSpanningTree t, boolean unDirectedGraph, WritableByteChannel out) throws IOException{
+		GraphWriter.writeDOT(t.tree, unDirectedGraph, out);
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Tells whether the edge stands for its pair of conjugates in an undirected graph. Parallel edges of the same weight are told
+	 * apart by their rank among each other, so each conjugate pairs with exactly one edge.
+	 */
+	private static boolean leads(Edge e){
+		if(e.a.name < e.b.name || (e.a.name == e.b.name && e.a != e.b)) return true;
+
+		//Case: a self loop is its own conjugate, so every second one is written
+		if(e.a == e.b) return GraphWriter.rank(e) % 2 == 0;
+
+		return GraphWriter.rank(e) >= GraphWriter.conjugates(e);
+	}
+
+	/**
+	 * Counts the edges like e that come before it, in the shorter of the two lists that hold it.
+	 */
+	private static int rank(Edge e){
+		ArrayList<Edge> list = e.a.out.size() <= e.b.in.size() ? e.a.out : e.b.in;
+
+		int r = 0;
+		for(Edge x : list){
+			if(x == e) break;
+			if(x.a == e.a && x.b == e.b && x.weight == e.weight) r++;
+		}
+		return r;
+	}
+
+	/**
+	 * Counts the conjugates of e of the same weight, in the shorter of the two lists that hold them.
+	 */
+	private static int conjugates(Edge e){
+		ArrayList<Edge> list = e.b.out.size() <= e.a.in.size() ? e.b.out : e.a.in;
+
+		int c = 0;
+		for(Edge x : list)
+			if(x.a == e.b && x.b == e.a && x.weight == e.weight) c++;
+		return c;
+	}
+
+	/**
+	 * Writes the 32 byte header of the binary format.
+	 */
+	private void header(int V, int E){
+		this.buf.putInt(MappedGraph.MAGIC).putInt(MappedGraph.VERSION).putInt(V).putInt(E).putInt(0);
+		while(this.buf.position() < MappedGraph.HEADER_BYTES) this.buf.put((byte)0);
+	}
+
+	/**
+	 * Formats the number in decimal ASCII.
+	 */
+	private GraphWriter number(int x) throws IOException{
+		if(this.buf.remaining() < 11) this.drain();
+
+		if(x < 0){
+			this.buf.put((byte)'-');
+
+			//Case: the one negative int with no positive counterpart
+			if(x == Integer.MIN_VALUE){
+				this.buf.put("2147483648".getBytes("US-ASCII"));
+				return this;
+			}
+			x = -x;
+		}
+
+		int digits = 1;
+		for(int p = 10; digits < 10 && x >= p; p *= 10) digits++;
+
+		int end = this.buf.position() + digits;
+		for(int i = end - 1; i >= this.buf.position(); i--){
+			this.buf.put(i, (byte)('0' + x % 10));
+			x /= 10;
+		}
+		this.buf.position(end);
+
+		return this;
+	}
+
+	private GraphWriter text(char c) throws IOException{
+		if(!this.buf.hasRemaining()) this.drain();
+		this.buf.put((byte)c);
+		return this;
+	}
+
+	private GraphWriter text(String s) throws IOException{
+		for(int i = 0; i < s.length(); i++) this.text(s.charAt(i));
+		return this;
+	}
+
+	/**
+	 * Writes the int in binary.
+	 */
+	private GraphWriter integer(int x) throws IOException{
+		if(this.buf.remaining() < 4) this.drain();
+		this.buf.putInt(x);
+		return this;
+	}
+
+	/**
+	 * Copies the first n ints of the array in bulk, a buffer at a time.
+	 */
+	private void ints(int[] a, int n) throws IOException{
+		for(int i = 0; i < n; ){
+			if(this.buf.remaining() < 4) this.drain();
+
+			int k = Math.min(n - i, this.buf.remaining() >>> 2);
+			this.buf.asIntBuffer().put(a, i, k);
+			this.buf.position(this.buf.position() + 4*k);
+			i += k;
+		}
+	}
+
+	private void drain() throws IOException{
+		this.buf.flip();
+		while(this.buf.hasRemaining()) this.out.write(this.buf);
+		this.buf.clear();
+	}
+
+	private void flush() throws IOException{
+		this.drain();
+	}
+
+}
@@ -0,0 +1,217 @@
+
+
+import java.util.Arrays;
+
+
+/**
+ * A binary min heap over the integer ids 0..n-1 with an int key per id.
+ * Unlike java.util.PriorityQueue it keeps the position of every id so that decreaseKey runs in O(log n)
+ * instead of the O(n) remove and add pair.
+ * @version 1.0
+ * @see Graph#aPJMinimumSpanningTree(boolean)
+ *
+ */
+public class IndexedMinHeap {
+
+	/**
+	 * The ids in heap order.
+	 */
+	private int[] heap;
+
+	/**
+	 * The position of each id in the heap or -1 if the id is not in the heap.
+	 */
+	private int[] position;
+
+	/**
+	 * The key of each id.
+	 */
+	private int[] keys;
+
+	/**
+	 * The number of ids in the heap.
+	 */
+	private int size;
+
+	/**
+	 * Constructs an empty heap able to hold the ids 0..capacity-1.
+	 * @param capacity The number of distinct ids.
+	 */
+	public IndexedMinHeap(int capacity){
+		if(capacity < 0) throw new IllegalArgumentException("Capacity can't be negative");
+
+		this.heap = new int[capacity];
+		this.position = new int[capacity];
+		this.keys = new int[capacity];
+		this.size = 0;
+
+		for(int i = 0; i < capacity; i++) this.position[i] = -1;
+	}
+
+	///////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the number of ids in the heap.
+	 */
+	public int size(){
+		return this.size;
+	}
+
+	/**
+	 * Determines whether the heap contains any ids.
+	 * @return boolean
+	 */
+	public boolean isEmpty(){
+		return this.size == 0;
+	}
+
+	/**
+	 * Determines whether the id is currently in the heap.
+	 * @param id The id to look for.
+	 * @return boolean
+	 */
+	public boolean contains(int id){
+		return id < this.position.length && this.position[id] != -1;
+	}
+
+	/**
+	 * Returns the current key of the id.
+	 * @param id An id in the heap.
+	 * @return int
+	 */
+	public int keyOf(int id){
+		return this.keys[id];
+	}
+
+	/**
+	 * Returns the id with the smallest key without removing it.
+	 * @return int
+	 */
+	public int peek(){
+		if(this.size == 0) throw new IllegalStateException("Heap is empty");
+		return this.heap[0];
+	}
+
+	///////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Inserts an id that is not in the heap. Ids past the capacity make the heap grow.
+	 * @param id The id to be inserted.
+	 * @param key The key of the id.
+	 */
+	public void insert(int id, int key){
+		if(id >= this.position.length) this.grow(id + 1);
+		if(this.position[id] != -1) throw new IllegalArgumentException("Id "+id+" is already in the heap");
+
+		this.keys[id] = key;
+		this.heap[this.size] = id;
+		this.position[id] = this.size;
+		this.siftUp(this.size++);
+	}
+
+	/**
+	 * Lowers the key of an id already in the heap. Keys that are not smaller than the current one are ignored.
+	 * @param id The id whose key is decreased.
+	 * @param key The new key.
+	 */
+	public void decreaseKey(int id, int key){
+		if(this.position[id] == -1) throw new IllegalArgumentException("Id "+id+" is not in the heap");
+		if(key >= this.keys[id]) return;
+
+		this.keys[id] = key;
+		this.siftUp(this.position[id]);
+	}
+
+	/**
+	 * Removes and returns the id with the smallest key.
+	 * @return int
+	 */
+	public int poll(){
+		if(this.size == 0) throw new IllegalStateException("Heap is empty");
+
+		int min = this.heap[0];
+		this.size--;
+
+		if(this.size > 0){
+			this.heap[0] = this.heap[this.size];
+			this.position[this.heap[0]] = 0;
+			this.siftDown(0);
+		}
+
+		this.position[min] = -1;
+		return min;
+	}
+
+	/**
+	 * Removes every id from the heap. Only the ids still in the heap are touched.
+	 */
+	public void clear(){
+		for(int i = 0; i < this.size; i++) this.position[this.heap[i]] = -1;
+		this.size = 0;
+	}
+
+	///////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////
+
+	private void grow(int capacity){
+		int n = Math.max(capacity, 2*this.position.length);
+		int old = this.position.length;
+
+		this.heap = Arrays.copyOf(this.heap, n);
+		this.keys = Arrays.copyOf(this.keys, n);
+		this.position = Arrays.copyOf(this.position, n);
+
+		for(int i = old; i < n; i++) this.position[i] = -1;
+	}
+
+	private void siftUp(int i){
+		int id = this.heap[i];
+		int key = this.keys[id];
+
+		while(i > 0){
+			int p = (i - 1) >>> 1;
+			int parent = this.heap[p];
+			if(this.keys[parent] <= key) break;
+
+			this.heap[i] = parent;
+			this.position[parent] = i;
+			i = p;
+		}
+
+		this.heap[i] = id;
+		this.position[id] = i;
+	}
+
+	private void siftDown(int i){
+		int id = this.heap[i];
+		int key = this.keys[id];
+		int half = this.size >>> 1;
+
+		while(i < half){
+			int c = 2*i + 1;
+			if(c + 1 < this.size && this.keys[this.heap[c+1]] < this.keys[this.heap[c]]) c++;
+
+			int child = this.heap[c];
+			if(this.keys[child] >= key) break;
+
+			this.heap[i] = child;
+			this.position[child] = i;
+			i = c;
+		}
+
+		this.heap[i] = id;
+		this.position[id] = i;
+	}
+
+}
@@ -0,0 +1,284 @@
+
+import java.util.Arrays;
+
+
+/**
+ * A forest of dynamic trees (Sleator and Tarjan) over integer node ids with a long value per node.
+ * link, cut, connected and pathMax all run in O(log n) amortized time.
+ * Each preferred path is kept in a splay tree whose nodes also track the node of maximum value in their subtree.
+ * @version 1.0
+ * @see DynamicMinimumSpanningTree
+ *
+ */
+public class LinkCutTree {
+
+	private int[] left;
+	private int[] right;
+	private int[] parent;
+	private boolean[] flip;
+	private long[] value;
+	private int[] max;
+
+	/**
+	 * Ids of released nodes that newNode hands out again.
+	 */
+	private int[] free;
+	private int freeSize;
+
+	/**
+	 * Holds the splay path while pending flips are pushed down.
+	 */
+	private int[] stack = new int[64];
+
+	/**
+	 * The number of ids ever handed out.
+	 */
+	private int size;
+
+	/**
+	 * Constructs an empty forest.
+	 * @param capacity The number of nodes to make room for up front.
+	 */
+	public LinkCutTree(int capacity){
+		capacity = Math.max(capacity, 16);
+
+		this.left = new int[capacity];
+		this.right = new int[capacity];
+		this.parent = new int[capacity];
+		this.flip = new boolean[capacity];
+		this.value = new long[capacity];
+		this.max = new int[capacity];
+		this.free = new int[16];
+		this.freeSize = 0;
+		this.size = 0;
+	}
+
+	///////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Creates a new single node tree.
+	 * @param v The value of the node.
+	 * @return The id of the node.
+	 */
+	public int newNode(long v){
+		int x;
+
+		if(this.freeSize > 0) x = this.free[--this.freeSize];
+		else {
+			if(this.size == this.left.length) this.grow();
+			x = this.size++;
+		}
+
+		this.left[x] = this.right[x] = this.parent[x] = -1;
+		this.flip[x] = false;
+		this.value[x] = v;
+		this.max[x] = x;
+		return x;
+	}
+
+	/**
+	 * Gives back the id of a node that has already been cut from every other node.
+	 * @param x The id of the node.
+	 */
+	public void releaseNode(int x){
+		if(this.freeSize == this.free.length) this.free = Arrays.copyOf(this.free, 2*this.free.length);
+		this.free[this.freeSize++] = x;
+	}
+
+	/**
+	 * Returns the value of the node.
+	 * @param x The id of the node.
+	 * @return long
+	 */
+	public long valueOf(int x){
+		return this.value[x];
+	}
+
+	/**
+	 * Changes the value of the node.
+	 * @param x The id of the node.
+	 * @param v The new value.
+	 */
+	public void setValue(int x, long v){
+		this.access(x);
+		this.value[x] = v;
+		this.pull(x);
+	}
+
+	///////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Joins the trees of x and y with an edge between x and y. They must be in different trees.
+	 */
+	public void link(int x, int y){
+		this.makeRoot(x);
+		this.parent[x] = y;
+	}
+
+	/**
+	 * Removes the edge between x and y. They must be adjacent.
+	 */
+	public void cut(int x, int y){
+		this.makeRoot(x);
+		this.access(y);
+
+		// x is now the only node left of y on the path
+		this.left[y] = -1;
+		this.parent[x] = -1;
+		this.pull(y);
+	}
+
+	/**
+	 * Determines whether x and y are in the same tree.
+	 * @return boolean
+	 */
+	public boolean connected(int x, int y){
+		if(x == y) return true;
+		return this.findRoot(x) == this.findRoot(y);
+	}
+
+	/**
+	 * Returns the node of maximum value on the tree path between x and y, which must be in the same tree.
+	 * @return int
+	 */
+	public int pathMax(int x, int y){
+		this.makeRoot(x);
+		this.access(y);
+		return this.max[y];
+	}
+
+	///////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////
+
+	private int findRoot(int x){
+		this.access(x);
+
+		while(true){
+			this.push(x);
+			if(this.left[x] == -1) break;
+			x = this.left[x];
+		}
+
+		this.splay(x);
+		return x;
+	}
+
+	private void makeRoot(int x){
+		this.access(x);
+		this.flip[x] = !this.flip[x];
+	}
+
+	/**
+	 * Makes the path from the root of x's tree to x preferred and splays x to the top of it.
+	 */
+	private void access(int x){
+		int last = -1;
+
+		for(int y = x; y != -1; y = this.parent[y]){
+			this.splay(y);
+			this.right[y] = last;
+			this.pull(y);
+			last = y;
+		}
+
+		this.splay(x);
+	}
+
+	private boolean isSplayRoot(int x){
+		int p = this.parent[x];
+		return p == -1 || (this.left[p] != x && this.right[p] != x);
+	}
+
+	private void pull(int x){
+		int m = x;
+		int l = this.left[x];
+		int r = this.right[x];
+
+		if(l != -1 && this.value[this.max[l]] > this.value[m]) m = this.max[l];
+		if(r != -1 && this.value[this.max[r]] > this.value[m]) m = this.max[r];
+
+		this.max[x] = m;
+	}
+
+	private void push(int x){
+		if(!this.flip[x]) return;
+
+		int t = this.left[x];
+		this.left[x] = this.right[x];
+		this.right[x] = t;
+
+		if(this.left[x] != -1) this.flip[this.left[x]] = !this.flip[this.left[x]];
+		if(this.right[x] != -1) this.flip[this.right[x]] = !this.flip[this.right[x]];
+		this.flip[x] = false;
+	}
+
+	private void rotate(int x){
+		int p = this.parent[x];
+		int g = this.parent[p];
+
+		if(!this.isSplayRoot(p)){
+			if(this.left[g] == p) this.left[g] = x;
+			else this.right[g] = x;
+		}
+		this.parent[x] = g;
+
+		if(this.left[p] == x){
+			this.left[p] = this.right[x];
+			if(this.right[x] != -1) this.parent[this.right[x]] = p;
+			this.right[x] = p;
+		}
+		else {
+			this.right[p] = this.left[x];
+			if(this.left[x] != -1) this.parent[this.left[x]] = p;
+			this.left[x] = p;
+		}
+
+		this.parent[p] = x;
+		this.pull(p);
+		this.pull(x);
+	}
+
+	private void splay(int x){
+		// Pending flips are pushed from the top of the splay tree down to x
+		int depth = 0;
+		for(int y = x; ; y = this.parent[y]){
+			if(depth == this.stack.length) this.stack = Arrays.copyOf(this.stack, 2*depth);
+			this.stack[depth++] = y;
+			if(this.isSplayRoot(y)) break;
+		}
+		while(depth > 0) this.push(this.stack[--depth]);
+
+		while(!this.isSplayRoot(x)){
+			int p = this.parent[x];
+			if(!this.isSplayRoot(p)){
+				int g = this.parent[p];
+				if((this.left[g] == p) == (this.left[p] == x)) this.rotate(p);
+				else this.rotate(x);
+			}
+			this.rotate(x);
+		}
+	}
+
+	private void grow(){
+		int n = 2*this.left.length;
+
+		this.left = Arrays.copyOf(this.left, n);
+		this.right = Arrays.copyOf(this.right, n);
+		this.parent = Arrays.copyOf(this.parent, n);
+		this.flip = Arrays.copyOf(this.flip, n);
+		this.value = Arrays.copyOf(this.value, n);
+		this.max = Arrays.copyOf(this.max, n);
+	}
+
+}
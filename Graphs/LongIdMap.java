@@ -0,0 +1,168 @@
+
+
+import java.util.Arrays;
+
+
+/**
+ * Maps external long keys to the dense ids 0, 1, 2, ... in the order the keys are added, and back.
+ * The keys live in an open addressing table with linear probing over a long and an int array, so nothing is boxed:
+ * the table is kept between a quarter and half full, so a key costs 24 to 48 bytes of table slots, plus 8 bytes in the array
+ * of keys, instead of the Long, Integer and entry objects of a Hashtable.
+ * Keys can't be removed.
+ * @version 1.0
+ * @see StringIdMap
+ * @see Graph#insertVertex(long)
+ *
+ */
+public class LongIdMap {
+
+	/**
+	 * The most keys a map holds: the table is kept at most half full and has at most 2^30 slots.
+	 */
+	public static final int MAX_KEYS = 1 << 29;
+
+	/**
+	 * The key stored in each slot of the table.
+	 */
+	private long[] table;
+
+	/**
+	 * The id of the key in each slot, or -1 for an empty slot.
+	 */
+	private int[] ids;
+
+	/**
+	 * The key of each id.
+	 */
+	private long[] keys;
+
+	/**
+	 * The number of keys.
+	 */
+	private int size;
+
+	/**
+	 * Constructs an empty map.
+	 */
+	public LongIdMap(){
+		this(16);
+	}
+
+	/**
+	 * Constructs an empty map sized for the expected number of keys.
+	 * @param expected The number of keys that will be added, at most MAX_KEYS.
+	 */
+	public LongIdMap(int expected){
+		if(expected < 0) throw new IllegalArgumentException("Expected size can't be negative");
+		if(expected > MAX_KEYS) throw new IllegalArgumentException("A map holds at most "+MAX_KEYS+" keys");
+
+		int capacity = Integer.highestOneBit(Math.max(8, expected) * 2 - 1) << 1;
+		this.table = new long[capacity];
+		this.ids = new int[capacity];
+		this.keys = new long[Math.max(8, expected)];
+		Arrays.fill(this.ids, -1);
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the number of keys.
+	 */
+	public int size(){
+		return this.size;
+	}
+
+	/**
+	 * Returns the id of the key.
+	 * @param key An external key.
+	 * @return The id or -1 if the key was never added.
+	 */
+	public int get(long key){
+		int mask = this.table.length - 1;
+
+		for(int i = LongIdMap.hash(key) & mask; this.ids[i] != -1; i = (i + 1) & mask)
+			if(this.table[i] == key) return this.ids[i];
+
+		return -1;
+	}
+
+	/**
+	 * Returns the id of the key, giving it the next id if it is new.
+	 * @param key An external key.
+	 * @return int
+	 */
+	public int add(long key){
+		int mask = this.table.length - 1;
+		int i = LongIdMap.hash(key) & mask;
+
+		for(; this.ids[i] != -1; i = (i + 1) & mask)
+			if(this.table[i] == key) return this.ids[i];
+
+		if(this.size == MAX_KEYS) throw new IllegalStateException("A map holds at most "+MAX_KEYS+" keys");
+
+		int id = this.size++;
+		this.table[i] = key;
+		this.ids[i] = id;
+
+		if(id == this.keys.length) this.keys = Arrays.copyOf(this.keys, (int)Math.min(MAX_KEYS, 2L*id));
+		this.keys[id] = key;
+
+		// Half full at most keeps the probe sequences short
+		if(2L*this.size > this.table.length) this.rehash();
+
+		return id;
+	}
+
+	/**
+	 * Returns the key of the id.
+	 * @param id An id given by add.
+	 * @return long
+	 */
+	public long keyOf(int id){
+		if(id < 0 || id >= this.size) throw new IndexOutOfBoundsException("Id "+id+" was never given");
+		return this.keys[id];
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Doubles the table. add stops at MAX_KEYS, so the table never grows past 2^30 slots.
+	 */
+	private void rehash(){
+		int capacity = 2*this.table.length;
+		int mask = capacity - 1;
+		this.table = new long[capacity];
+		this.ids = new int[capacity];
+		Arrays.fill(this.ids, -1);
+
+		for(int id = 0; id < this.size; id++){
+			long key = this.keys[id];
+			int i = LongIdMap.hash(key) & mask;
+			while(this.ids[i] != -1) i = (i + 1) & mask;
+
+			this.table[i] = key;
+			this.ids[i] = id;
+		}
+	}
+
+	/**
+	 * Spreads the bits of the key (the finalizer of MurmurHash3), since sequential or strided ids would cluster.
+	 */
+	private static int hash(long key){
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int)key;
+	}
+
+}
@@ -0,0 +1,496 @@
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+
+/**
+ * A read only graph opened straight from a binary CSR file, with no parsing and no copy: the offset, target and weight
+ * arrays stay in the memory mapped pages of the file and are read through IntBuffer views.
+ * The file is a 32 byte little endian header (the magic number, the format version, V, E and flags) followed by the V+1 outgoing
+ * offsets, the E targets and the E weights as 4 byte ints. Each array is mapped in segments of 1 GB so that it may outgrow a single mapping.
+ * The pages are read in by the operating system as the algorithms touch them and released when the MappedGraph is garbage collected.
+ * @version 1.0
+ * @see MappedGraph#write(CSRGraph, File)
+ * @see MappedGraph#open(File)
+ * @see Graph#writeBinary(File)
+ *
+ */
+public class MappedGraph {
+
+	/**
+	 * The first four bytes of every graph file, "GRPH" read as an int.
+	 */
+	public static final int MAGIC = 0x48505247;
+
+	/**
+	 * The format version written by this class.
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * The size of the header in bytes.
+	 */
+	public static final int HEADER_BYTES = 32;
+
+	/**
+	 * The number of ints in a mapped segment, as a power of two.
+	 */
+	protected static final int SEGMENT_SHIFT = 28;
+
+	protected static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+	/**
+	 * The number of targets read at once when the edges are streamed.
+	 */
+	private static final int STREAM_CHUNK = 1 << 14;
+
+	/**
+	 * Contains the number of vertices
+	 */
+	public final int V;
+
+	/**
+	 * Contains the number of edges
+	 */
+	public final int E;
+
+	/**
+	 * The segments of the V+1 outgoing offsets.
+	 */
+	protected final IntBuffer[] offsets;
+
+	/**
+	 * The segments of the E targets.
+	 */
+	protected final IntBuffer[] targets;
+
+	/**
+	 * The segments of the E weights.
+	 */
+	protected final IntBuffer[] weights;
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Wraps arrays already laid out as in the file. Used by open and by subclasses that keep the arrays elsewhere.
+	 * @param V The number of vertices.
+	 * @param E The number of edges.
+	 * @param offsets The segments of the V+1 outgoing offsets.
+	 * @param targets The segments of the E targets.
+	 * @param weights The segments of the E weights.
+	 */
+	protected MappedGraph(int V, int E, IntBuffer[] offsets, IntBuffer[] targets, IntBuffer[] weights){
+		this.V = V;
+		this.E = E;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.weights = weights;
+	}
+
+	/**
+	 * Maps a graph file written by write. Only the header is read; every other page is left to be faulted in on use.
+	 * @param input The graph file.
+	 * @return MappedGraph
+	 * @throws IOException If the file can't be read, is not a graph file or was written by a newer version.
+	 */
+	public static MappedGraph open(File input) throws IOException{
+		if(input == null) throw new NullPointerException("Passed File is null");
+
+		RandomAccessFile file = new RandomAccessFile(input, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			if(channel.size() < HEADER_BYTES) throw new IOException("File is too short to be a graph file");
+
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			if(header.getInt(0) != MAGIC) throw new IOException("Not a graph file");
+			int version = header.getInt(4);
+			if(version < 1 || version > VERSION) throw new IOException("Graph file version "+version+" is not supported");
+
+			int V = header.getInt(8);
+			int E = header.getInt(12);
+			if(V < 0 || E < 0) throw new IOException("Negative vertex or edge count in the header");
+
+			long position = HEADER_BYTES;
+			long expected = position + 4L*(V + 1) + 8L*E;
+			if(channel.size() < expected) throw new IOException("Graph file is truncated");
+
+			IntBuffer[] offsets = MappedGraph.map(channel, position, V + 1L);
+			position += 4L*(V + 1);
+			IntBuffer[] targets = MappedGraph.map(channel, position, E);
+			position += 4L*E;
+			IntBuffer[] weights = MappedGraph.map(channel, position, E);
+
+			// The mappings stay valid after the channel is closed
+			return new MappedGraph(V, E, offsets, targets, weights);
+		} finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Writes the graph in the binary format read by open.
+	 * @see Graph#writeBinary(File)
+	 * @param g The graph to be written.
+	 * @param output The file to be created or overwritten.
+	 * @throws IOException If the file can't be written.
+	 */
+	public static void write(CSRGraph g, File output) throws IOException{
+		if(g == null) throw new NullPointerException("Can't write a null graph");
+		if(output == null) throw new NullPointerException("Passed File is null");
+
+		RandomAccessFile file = new RandomAccessFile(output, "rw");
+		try {
+			FileChannel channel = file.getChannel();
+			channel.truncate(0);
+			GraphWriter.writeBinary(g, channel);
+		} finally {
+			file.close();
+		}
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the number of vertices in the graph
+	 */
+	public int numVertices(){
+		return this.V;
+	}
+
+	/**
+	 * Returns the number of edges in the graph
+	 */
+	public int numEdges(){
+		return this.E;
+	}
+
+	/**
+	 * Returns the first outgoing slot of v; the slots of v end where those of v+1 begin.
+	 * @param v The id of a vertex, or V for the end of the last vertex's slots.
+	 * @return int
+	 */
+	public int outOffset(int v){
+		return this.offsets[v >>> SEGMENT_SHIFT].get(v & SEGMENT_MASK);
+	}
+
+	/**
+	 * Returns the number of outgoing edges of the vertex.
+	 * @param v The id of the vertex.
+	 */
+	public int outDegree(int v){
+		return this.outOffset(v + 1) - this.outOffset(v);
+	}
+
+	/**
+	 * Returns the target of the outgoing slot.
+	 * @param k An outgoing edge slot.
+	 * @return int
+	 */
+	public int target(int k){
+		return this.targets[k >>> SEGMENT_SHIFT].get(k & SEGMENT_MASK);
+	}
+
+	/**
+	 * Returns the weight of the outgoing slot.
+	 * @param k An outgoing edge slot.
+	 * @return int
+	 */
+	public int weight(int k){
+		return this.weights[k >>> SEGMENT_SHIFT].get(k & SEGMENT_MASK);
+	}
+
+	/**
+	 * Copies the graph into a CSRGraph on the heap, for the algorithms that only run there.
+	 * @return CSRGraph
+	 */
+	public CSRGraph toCSRGraph(){
+		int[] o = new int[this.V + 1];
+		int[] t = new int[this.E];
+		int[] w = new int[this.E];
+
+		for(int v = 0; v <= this.V; v++) o[v] = this.outOffset(v);
+		for(int k = 0; k < this.E; k++){
+			t[k] = this.target(k);
+			w[k] = this.weight(k);
+		}
+
+		return new CSRGraph(this.V, o, t, w);
+	}
+
+	/**
+	 * Returns a string with the number of vertices and edges boxed up in brackets.
+	 * @return String
+	 */
+	public String toString(){
+		return "MappedGraph: [V="+this.V+"][E="+this.E+"]";
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Runs a Breadth First Search from s over the outgoing edges, reading the adjacency from the mapped pages.
+	 * @param s The id of the vertex to start the BFS at.
+	 * @return A new buffer with the hop distance of every vertex from s, or -1 if the vertex can't be reached.
+	 */
+	public IntBuffer BFS(int s){
+		if(s < 0 || s >= this.V) throw new IndexOutOfBoundsException("Vertex id "+s+" is not in the graph");
+		return this.BFS(s, this.newResult(this.V));
+	}
+
+	/**
+	 * Runs a Breadth First Search from s into a buffer owned by the caller, so that repeated queries can reuse it.
+	 * @see MappedGraph#BFS(int)
+	 * @param s The id of the vertex to start the BFS at.
+	 * @param depth The buffer the hop distances are written to, at indices 0..V-1.
+	 * @return depth
+	 */
+	public IntBuffer BFS(int s, IntBuffer depth){
+		if(s < 0 || s >= this.V) throw new IndexOutOfBoundsException("Vertex id "+s+" is not in the graph");
+		if(depth == null) throw new NullPointerException("Passed IntBuffer is null");
+		if(depth.limit() < this.V) throw new IllegalArgumentException("Buffer holds "+depth.limit()+" ints but the graph has "+this.V+" vertices");
+
+		IntBuffer[] queue = this.workspace(this.V);
+		for(int v = 0; v < this.V; v++) depth.put(v, -1);
+
+		depth.put(s, 0);
+		queue[0].put(0, s);
+		int head = 0, tail = 1;
+
+		while(head < tail){
+			int u = queue[head >>> SEGMENT_SHIFT].get(head & SEGMENT_MASK);
+			head++;
+			int du = depth.get(u);
+
+			for(int k = this.outOffset(u), end = this.outOffset(u + 1); k < end; k++){
+				int v = this.target(k);
+				if(depth.get(v) != -1) continue;
+
+				depth.put(v, du + 1);
+				queue[tail >>> SEGMENT_SHIFT].put(tail & SEGMENT_MASK, v);
+				tail++;
+			}
+		}
+
+		return depth;
+	}
+
+	/**
+	 * Runs Dijkstra's shortestpath from s over the outgoing edges, reading the adjacency from the mapped pages.
+	 * The priority queue is an IndexedMinHeap on the heap.
+	 * @param s The id of the vertex the paths start at.
+	 * @return A new buffer with the length of the shortest path to every vertex, Integer.MAX_VALUE if it can't be reached.
+	 * @throws DijkstraNegativeWeightEdge If the search meets an edge with a negative weight.
+	 */
+	public IntBuffer DijkstraShortestPaths(int s) throws DijkstraNegativeWeightEdge{
+		if(s < 0 || s >= this.V) throw new IndexOutOfBoundsException("Vertex id "+s+" is not in the graph");
+		return this.DijkstraShortestPaths(s, this.newResult(this.V));
+	}
+
+	/**
+	 * Runs Dijkstra's shortestpath from s into a buffer owned by the caller, so that repeated queries can reuse it.
+	 * @see MappedGraph#DijkstraShortestPaths(int)
+	 * @param s The id of the vertex the paths start at.
+	 * @param dist The buffer the path lengths are written to, at indices 0..V-1.
+	 * @return dist
+	 * @throws DijkstraNegativeWeightEdge If the search meets an edge with a negative weight.
+	 */
+	public IntBuffer DijkstraShortestPaths(int s, IntBuffer dist) throws DijkstraNegativeWeightEdge{
+		if(s < 0 || s >= this.V) throw new IndexOutOfBoundsException("Vertex id "+s+" is not in the graph");
+		if(dist == null) throw new NullPointerException("Passed IntBuffer is null");
+		if(dist.limit() < this.V) throw new IllegalArgumentException("Buffer holds "+dist.limit()+" ints but the graph has "+this.V+" vertices");
+
+		for(int v = 0; v < this.V; v++) dist.put(v, Integer.MAX_VALUE);
+
+		IndexedMinHeap qp = new IndexedMinHeap(this.V);
+		dist.put(s, 0);
+		qp.insert(s, 0);
+
+		while(!qp.isEmpty()){
+			int u = qp.poll();
+			int du = dist.get(u);
+
+			for(int k = this.outOffset(u), end = this.outOffset(u + 1); k < end; k++){
+				int w = this.weight(k);
+				if(w < 0) throw new DijkstraNegativeWeightEdge("Graph contains negative weight edge");
+
+				int v = this.target(k);
+				long r = (long)du + w;
+				if(r >= dist.get(v)) continue;
+
+				dist.put(v, (int)r);
+				if(qp.contains(v)) qp.decreaseKey(v, (int)r);
+				else qp.insert(v, (int)r);
+			}
+		}
+
+		return dist;
+	}
+
+	/**
+	 * Runs a semi external Breadth First Search from s: the depths and the frontier are kept on the heap, O(V) in all,
+	 * while the adjacency is only read from the mapped pages. Each level's frontier is a bitmap walked in increasing id order,
+	 * so the offsets and targets are read front to back once per level instead of in the scattered order of a FIFO queue,
+	 * and only the words between the lowest and highest frontier vertex are visited.
+	 * @see MappedGraph#BFS(int)
+	 * @param s The id of the vertex to start the BFS at.
+	 * @return The hop distance of every vertex from s, or -1 if the vertex can't be reached.
+	 */
+	public int[] semiExternalBFS(int s){
+		if(s < 0 || s >= this.V) throw new IndexOutOfBoundsException("Vertex id "+s+" is not in the graph");
+
+		int[] depth = new int[this.V];
+		Arrays.fill(depth, -1);
+
+		long[] frontier = new long[(this.V + 63) >>> 6];
+		long[] next = new long[frontier.length];
+
+		depth[s] = 0;
+		frontier[s >>> 6] |= 1L << s;
+		int lo = s >>> 6, hi = lo;
+
+		for(int d = 1; lo <= hi; d++){
+			int nextLo = Integer.MAX_VALUE, nextHi = -1;
+
+			for(int i = lo; i <= hi; i++){
+				long word = frontier[i];
+				frontier[i] = 0;
+
+				while(word != 0){
+					int u = (i << 6) + Long.numberOfTrailingZeros(word);
+					word &= word - 1;
+
+					for(int k = this.outOffset(u), end = this.outOffset(u + 1); k < end; k++){
+						int v = this.target(k);
+						if(depth[v] != -1) continue;
+
+						depth[v] = d;
+						next[v >>> 6] |= 1L << v;
+						nextLo = Math.min(nextLo, v >>> 6);
+						nextHi = Math.max(nextHi, v >>> 6);
+					}
+				}
+			}
+
+			long[] t = frontier;
+			frontier = next;
+			next = t;
+			lo = nextLo;
+			hi = nextHi;
+		}
+
+		return depth;
+	}
+
+	/**
+	 * Finds the connected components semi externally, treating every edge as undirected: a union find over the vertex ids
+	 * is kept on the heap and the targets are streamed once, front to back, in bulk reads of the mapped pages.
+	 * @return The component of every vertex, numbered 0, 1, ... in the order of their smallest vertex.
+	 */
+	public int[] semiExternalConnectedComponents(){
+		int[] parent = new int[this.V];
+		for(int v = 0; v < this.V; v++) parent[v] = v;
+
+		int[] chunk = new int[STREAM_CHUNK];
+		int u = 0;
+		int end = this.V > 0 ? this.outOffset(1) : 0;
+
+		for(int k = 0; k < this.E; ){
+			// A bulk get never crosses a segment
+			IntBuffer segment = this.targets[k >>> SEGMENT_SHIFT].duplicate();
+			segment.position(k & SEGMENT_MASK);
+			int n = Math.min(chunk.length, segment.remaining());
+			segment.get(chunk, 0, n);
+
+			for(int i = 0; i < n; i++, k++){
+				while(k >= end) end = this.outOffset(++u + 1);
+
+				int a = MappedGraph.find(parent, u);
+				int b = MappedGraph.find(parent, chunk[i]);
+
+				// The smaller root wins so every root is the smallest vertex of its component
+				if(a < b) parent[b] = a;
+				else if(b < a) parent[a] = b;
+			}
+		}
+
+		int[] component = new int[this.V];
+		int c = 0;
+		for(int v = 0; v < this.V; v++){
+			int r = MappedGraph.find(parent, v);
+			component[v] = r == v ? c++ : component[r];
+		}
+
+		return component;
+	}
+
+	/**
+	 * Allocates the array a query returns. Subclasses override it to keep it off the heap.
+	 * @param n The number of ints wanted.
+	 * @return A new buffer of n ints.
+	 */
+	protected IntBuffer newResult(int n){
+		return IntBuffer.allocate(n);
+	}
+
+	/**
+	 * Gives the working array of a query, in segments of 1 << SEGMENT_SHIFT ints like the graph's own arrays.
+	 * Its contents are undefined and it is never handed to the caller, so subclasses may reuse it between queries.
+	 * @param n The number of ints wanted.
+	 * @return The segments of n ints.
+	 */
+	protected IntBuffer[] workspace(int n){
+		IntBuffer[] segments = new IntBuffer[Math.max(1, (int)((n + (long)SEGMENT_MASK) >>> SEGMENT_SHIFT))];
+		for(int i = 0; i < segments.length; i++)
+			segments[i] = IntBuffer.allocate((int)Math.min(n - ((long)i << SEGMENT_SHIFT), 1L << SEGMENT_SHIFT));
+		return segments;
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	private static int find(int[] parent, int v){
+		while(parent[v] != v){
+			parent[v] = parent[parent[v]];
+			v = parent[v];
+		}
+		return v;
+	}
+
+	/**
+	 * Maps n ints starting at the byte position as IntBuffer segments of 1 << SEGMENT_SHIFT ints.
+	 */
+	private static IntBuffer[] map(FileChannel channel, long position, long n) throws IOException{
+		IntBuffer[] segments = new IntBuffer[(int)Math.max(1, (n + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+
+		for(int i = 0; i < segments.length; i++){
+			long length = Math.min(n - ((long)i << SEGMENT_SHIFT), 1L << SEGMENT_SHIFT);
+			segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position + 4L*((long)i << SEGMENT_SHIFT), 4*length)
+					.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+		}
+
+		return segments;
+	}
+
+}
@@ -0,0 +1,40 @@
+
+
+/**
+ * Holds a minimum spanning tree (or forest) together with its total weight.
+ * @version 1.0
+ * @see Graph#aBoruvkaMinimumSpanningTree(boolean)
+ *
+ */
+public class MinimumSpanningTree {
+
+	/**
+	 * The tree in the same shape aKruskalMinimumSpanningTree returns: every vertex and the tree edges,
+	 * with each conjugate included if the graph is undirected.
+	 */
+	public Graph tree;
+
+	/**
+	 * The sum of the weights of the tree edges. Conjugates are only counted once.
+	 */
+	public long weight;
+
+	/**
+	 * Constructs the result out of a tree and its weight.
+	 * @param tree The spanning tree.
+	 * @param weight The total weight of the tree.
+	 */
+	public MinimumSpanningTree(Graph tree, long weight){
+		this.tree = tree;
+		this.weight = weight;
+	}
+
+	/**
+	 * Returns a string with the tree and its weight.
+	 * @return String
+	 */
+	public String toString(){
+		return "MST:"+this.tree+" [W="+this.weight+"]";
+	}
+
+}
@@ -0,0 +1,54 @@
+
+
+/**
+ * The vertices settled by a distance bounded Dijkstra search, in order of their distance from the source.
+ * @version 1.0
+ * @see Graph#withinDistance(Vertex, int)
+ * @see Graph#kNearest(Vertex, int)
+ *
+ */
+public class NearestVertices {
+
+	/**
+	 * The vertices found, nearest first.
+	 */
+	public final Vertex[] vertices;
+
+	/**
+	 * The name of each vertex found.
+	 */
+	public final int[] names;
+
+	/**
+	 * The shortest path length from the source to each vertex found.
+	 */
+	public final int[] distances;
+
+	/**
+	 * Constructs the result out of parallel arrays.
+	 * @param vertices The vertices found, nearest first.
+	 * @param names The name of each vertex.
+	 * @param distances The distance of each vertex.
+	 */
+	public NearestVertices(Vertex[] vertices, int[] names, int[] distances){
+		this.vertices = vertices;
+		this.names = names;
+		this.distances = distances;
+	}
+
+	/**
+	 * Returns the number of vertices found.
+	 */
+	public int size(){
+		return this.vertices.length;
+	}
+
+	/**
+	 * Returns a string with the number of vertices found and the largest distance boxed up in brackets.
+	 * @return String
+	 */
+	public String toString(){
+		return "Nearest: [N="+this.vertices.length+"][D="+(this.distances.length == 0 ? 0 : this.distances[this.distances.length - 1])+"]";
+	}
+
+}
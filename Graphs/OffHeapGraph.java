@@ -0,0 +1,201 @@
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+
+/**
+ * A read only graph whose adjacency, weights and per query arrays all live in direct memory outside the Java heap.
+ * A graph of any size then costs the heap a few buffer objects, so the garbage collector never scans or copies graph data
+ * and the heap can stay small. The arrays are laid out as in MappedGraph, in direct ByteBuffer segments of 1 GB, and the queries are MappedGraph's.
+ * Unlike a MappedGraph the data is copied in once and no longer depends on the page cache or on the file.
+ * Each thread that queries the graph gets a direct working array of V ints, in 1 GB segments, allocated on its first query and
+ * reused by every later one. BFS(int) and DijkstraShortestPaths(int) return a new direct buffer as in MappedGraph; a loop of
+ * queries that should not allocate direct memory passes its own buffer to BFS(int, IntBuffer) or DijkstraShortestPaths(int, IntBuffer).
+ * A direct buffer holds at most 2^31-1 bytes, so on a graph of MAX_RESULT_VERTICES vertices or more the results have to go
+ * into a buffer passed by the caller, such as a heap IntBuffer.
+ * The file header stores E as an int, so a graph holds at most 2^31-1 edges, about 17 GB of targets and weights.
+ * Only the queries that work on vertex ids are supported: BFS, DijkstraShortestPaths, semiExternalBFS and semiExternalConnectedComponents.
+ * Graph's other algorithms need Vertex and Edge objects, which an OffHeapGraph doesn't have; they can be run on toCSRGraph().
+ * The direct memory is given back when the OffHeapGraph is garbage collected;
+ * -XX:MaxDirectMemorySize has to be large enough to hold the graph and the working arrays.
+ * @version 1.0
+ * @see MappedGraph
+ *
+ */
+public class OffHeapGraph extends MappedGraph {
+
+	/**
+	 * The fewest vertices whose result no longer fits one direct buffer.
+	 */
+	public static final int MAX_RESULT_VERTICES = Integer.MAX_VALUE / 4 + 1;
+
+	/**
+	 * The segments of each thread's working array.
+	 */
+	private final ThreadLocal<IntBuffer[]> workspace = new ThreadLocal<IntBuffer[]>();
+
+	/**
+	 * Copies the snapshot into direct memory.
+	 * @param g The graph to be copied.
+	 */
+	public OffHeapGraph(CSRGraph g){
+		super(g.V, g.E, OffHeapGraph.copy(g.outOffsets, g.V + 1), OffHeapGraph.copy(g.outTargets, g.E), OffHeapGraph.copy(g.outWeights, g.E));
+	}
+
+	/**
+	 * Copies the graph into direct memory. Vertex ids are the positions in the adjacency list.
+	 * @param g The graph to be copied.
+	 */
+	public OffHeapGraph(Graph g){
+		this(new CSRGraph(g));
+	}
+
+	private OffHeapGraph(int V, int E, IntBuffer[] offsets, IntBuffer[] targets, IntBuffer[] weights){
+		super(V, E, offsets, targets, weights);
+	}
+
+	/**
+	 * Reads a graph file written by MappedGraph#write(CSRGraph, File) straight into direct memory, without going through the heap.
+	 * @param input The graph file.
+	 * @return OffHeapGraph
+	 * @throws IOException If the file can't be read or is not a graph file.
+	 */
+	public static OffHeapGraph read(File input) throws IOException{
+		if(input == null) throw new NullPointerException("Passed File is null");
+
+		RandomAccessFile file = new RandomAccessFile(input, "r");
+		try {
+			FileChannel channel = file.getChannel();
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			while(header.hasRemaining() && channel.read(header) >= 0);
+			if(header.hasRemaining()) throw new IOException("File is too short to be a graph file");
+			if(header.getInt(0) != MAGIC) throw new IOException("Not a graph file");
+
+			int version = header.getInt(4);
+			if(version < 1 || version > VERSION) throw new IOException("Graph file version "+version+" is not supported");
+
+			int V = header.getInt(8);
+			int E = header.getInt(12);
+			if(V < 0 || E < 0) throw new IOException("Negative vertex or edge count in the header");
+
+			IntBuffer[] offsets = OffHeapGraph.read(channel, V + 1L);
+			IntBuffer[] targets = OffHeapGraph.read(channel, E);
+			IntBuffer[] weights = OffHeapGraph.read(channel, E);
+
+			return new OffHeapGraph(V, E, offsets, targets, weights);
+		} finally {
+			file.close();
+		}
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Allocates the array a query returns in direct memory.
+	 * @param n The number of ints wanted.
+	 * @return A new direct buffer of n ints.
+	 * @throws IllegalStateException If n ints don't fit one direct buffer.
+	 */
+	protected IntBuffer newResult(int n){
+		if(n >= MAX_RESULT_VERTICES) throw new IllegalStateException(n+" ints don't fit a direct buffer, pass a buffer to the query");
+		return ByteBuffer.allocateDirect(4*n).order(ByteOrder.nativeOrder()).asIntBuffer();
+	}
+
+	/**
+	 * Gives the calling thread's direct working array, allocating it on the thread's first query only.
+	 * @param n The number of ints wanted, V for every query of this graph.
+	 * @return The segments of n ints, left over from the thread's previous query.
+	 */
+	protected IntBuffer[] workspace(int n){
+		IntBuffer[] segments = this.workspace.get();
+		if(segments == null){
+			segments = OffHeapGraph.allocate(n);
+			this.workspace.set(segments);
+		}
+		return segments;
+	}
+
+	/**
+	 * Returns a string with the number of vertices and edges boxed up in brackets.
+	 * @return String
+	 */
+	public String toString(){
+		return "OffHeapGraph: [V="+this.V+"][E="+this.E+"]";
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Allocates direct segments for n ints.
+	 */
+	private static IntBuffer[] allocate(long n){
+		ByteBuffer[] bytes = OffHeapGraph.allocateBytes(n);
+		IntBuffer[] segments = new IntBuffer[bytes.length];
+
+		for(int i = 0; i < segments.length; i++)
+			segments[i] = bytes[i].asIntBuffer();
+
+		return segments;
+	}
+
+	/**
+	 * Allocates the direct memory of the segments for n ints, as little endian bytes.
+	 */
+	private static ByteBuffer[] allocateBytes(long n){
+		ByteBuffer[] segments = new ByteBuffer[(int)Math.max(1, (n + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+
+		for(int i = 0; i < segments.length; i++){
+			long length = Math.min(n - ((long)i << SEGMENT_SHIFT), 1L << SEGMENT_SHIFT);
+			segments[i] = ByteBuffer.allocateDirect((int)(4*length)).order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		return segments;
+	}
+
+	/**
+	 * Copies the first n ints of the array into direct segments.
+	 */
+	private static IntBuffer[] copy(int[] a, int n){
+		IntBuffer[] segments = OffHeapGraph.allocate(n);
+
+		for(int i = 0; i < segments.length; i++)
+			segments[i].put(a, i << SEGMENT_SHIFT, segments[i].capacity()).clear();
+
+		return segments;
+	}
+
+	/**
+	 * Reads the next n ints of the channel into direct segments.
+	 */
+	private static IntBuffer[] read(FileChannel channel, long n) throws IOException{
+		// The channel fills the segments themselves, so the graph is only allocated once
+		ByteBuffer[] bytes = OffHeapGraph.allocateBytes(n);
+		IntBuffer[] segments = new IntBuffer[bytes.length];
+
+		for(int i = 0; i < segments.length; i++){
+			while(bytes[i].hasRemaining()){
+				if(channel.read(bytes[i]) < 0) throw new IOException("Graph file is truncated");
+			}
+			bytes[i].flip();
+			segments[i] = bytes[i].asIntBuffer();
+		}
+
+		return segments;
+	}
+
+}
@@ -0,0 +1,93 @@
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * Splits the index range 0..n-1 into chunks and runs them on a ForkJoinPool.
+ * Used by the parallel algorithms to stripe work over edge or vertex arrays.
+ * @version 1.0
+ * @see Graph#aBoruvkaMinimumSpanningTree(boolean)
+ *
+ */
+public class ParallelRange extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The work done on one chunk [lo, hi) of the range.
+	 */
+	public interface Body {
+		public void run(int lo, int hi);
+	}
+
+	/**
+	 * Below this many indices a range is not worth splitting.
+	 */
+	public static final int DEFAULT_GRAIN = 4096;
+
+	private final Body body;
+	private final int lo;
+	private final int hi;
+	private final int grain;
+
+	private ParallelRange(Body body, int lo, int hi, int grain){
+		this.body = body;
+		this.lo = lo;
+		this.hi = hi;
+		this.grain = grain;
+	}
+
+	///////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Runs the body over 0..n-1 on the common ForkJoinPool with the default grain.
+	 * @param n The size of the range.
+	 * @param body The work done on each chunk.
+	 */
+	public static void run(int n, Body body){
+		run(ForkJoinPool.commonPool(), n, DEFAULT_GRAIN, body);
+	}
+
+	/**
+	 * Runs the body over 0..n-1 on the given pool. Ranges no larger than grain run on the calling thread.
+	 * @param pool The pool to run the chunks on.
+	 * @param n The size of the range.
+	 * @param grain The largest chunk that is not split any further.
+	 * @param body The work done on each chunk.
+	 */
+	public static void run(ForkJoinPool pool, int n, int grain, Body body){
+		if(n <= 0) return;
+		if(grain < 1) grain = 1;
+
+		//Case: not worth handing to the pool
+		if(n <= grain){
+			body.run(0, n);
+			return;
+		}
+
+		pool.invoke(new ParallelRange(body, 0, n, grain));
+	}
+
+	///////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////////
+
+	protected void compute(){
+		if(this.hi - this.lo <= this.grain){
+			this.body.run(this.lo, this.hi);
+			return;
+		}
+
+		int mid = (this.lo + this.hi) >>> 1;
+		invokeAll(new ParallelRange(this.body, this.lo, mid, this.grain),
+				  new ParallelRange(this.body, mid, this.hi, this.grain));
+	}
+
+}
@@ -0,0 +1,315 @@
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Comparator;
+
+
+/**
+ * An exact hop distance oracle built with pruned landmark labeling (Akiba, Iwata and Yoshida).
+ * Every vertex gets an out label and an in label: sorted lists of (hub, distance) pairs such that for any u and v some hub on a
+ * shortest path from u to v is in both the out label of u and the in label of v. A query is then a merge-join of two short arrays.
+ * The labels are built by one forward and one backward BFS per vertex in decreasing degree order, each pruned wherever the labels
+ * built so far already give the right distance. Edge weights are ignored.
+ * Vertices are referred to by their CSRGraph id, i.e. their position in the Graph's adjacency list.
+ * @version 1.0
+ * @see CSRGraph
+ *
+ */
+public class PrunedLandmarkLabeling implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int INFINITY = Integer.MAX_VALUE;
+
+	/**
+	 * Contains the number of vertices
+	 */
+	public final int V;
+
+	/**
+	 * For each vertex the ranks of the hubs it reaches, ascending, and the distance to each.
+	 */
+	private final int[][] outHubs;
+	private final int[][] outDistances;
+
+	/**
+	 * For each vertex the ranks of the hubs reaching it, ascending, and the distance from each.
+	 */
+	private final int[][] inHubs;
+	private final int[][] inDistances;
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Builds the labels of g.
+	 * @see PrunedLandmarkLabeling#PrunedLandmarkLabeling(CSRGraph)
+	 * @param g The graph to be indexed.
+	 */
+	public PrunedLandmarkLabeling(Graph g){
+		this(new CSRGraph(g));
+	}
+
+	/**
+	 * Builds the labels of g.
+	 * @param g The graph to be indexed.
+	 */
+	public PrunedLandmarkLabeling(CSRGraph g){
+		if(g == null) throw new NullPointerException("Can't index a null graph");
+
+		this.V = g.V;
+		int n = g.V;
+
+		// Hubs are numbered by rank so appending them in processing order keeps every label sorted
+		Integer[] byDegree = new Integer[n];
+		for(int v = 0; v < n; v++) byDegree[v] = v;
+		final int[] degree = new int[n];
+		for(int v = 0; v < n; v++) degree[v] = g.outDegree(v) + g.inDegree(v);
+		Arrays.sort(byDegree, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				if(degree[a] != degree[b]) return degree[a] > degree[b] ? -1 : 1;
+				return a.compareTo(b);
+			}
+		});
+
+		HubLabel out = new HubLabel(n);
+		HubLabel in = new HubLabel(n);
+
+		int[] rootDistance = new int[n];
+		Arrays.fill(rootDistance, INFINITY);
+		int[] depth = new int[n];
+		Arrays.fill(depth, -1);
+		int[] queue = new int[n];
+
+		for(int rank = 0; rank < n; rank++){
+			int r = byDegree[rank];
+
+			// Forward: for every u reached, dist(r,u) goes in the in label of u unless out(r) and in(u) already cover it
+			in.load(out, r, rootDistance);
+			prunedSearch(g, r, rank, true, rootDistance, in, depth, queue);
+			in.unload(out, r, rootDistance);
+
+			// Backward: for every u reaching r, dist(u,r) goes in the out label of u unless out(u) and in(r) already cover it
+			out.load(in, r, rootDistance);
+			prunedSearch(g, r, rank, false, rootDistance, out, depth, queue);
+			out.unload(in, r, rootDistance);
+		}
+
+		this.outHubs = out.trimmedHubs();
+		this.outDistances = out.trimmedDistances();
+		this.inHubs = in.trimmedHubs();
+		this.inDistances = in.trimmedDistances();
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the number of edges on a shortest path from u to v.
+	 * @param u The id of the starting vertex.
+	 * @param v The id of the vertex to be reached.
+	 * @return The hop distance or -1 if v can't be reached from u.
+	 */
+	public int distance(int u, int v){
+		if(u == v) return 0;
+
+		int[] a = this.outHubs[u];
+		int[] da = this.outDistances[u];
+		int[] b = this.inHubs[v];
+		int[] db = this.inDistances[v];
+
+		int best = INFINITY;
+		int i = 0;
+		int j = 0;
+
+		while(i < a.length && j < b.length){
+			if(a[i] == b[j]){
+				int d = da[i++] + db[j++];
+				if(d < best) best = d;
+			}
+			else if(a[i] < b[j]) i++;
+			else j++;
+		}
+
+		return best == INFINITY ? -1 : best;
+	}
+
+	/**
+	 * Returns the average number of hubs per label, which is what a query costs.
+	 * @return double
+	 */
+	public double averageLabelSize(){
+		if(this.V == 0) return 0;
+
+		long total = 0;
+		for(int v = 0; v < this.V; v++) total += this.outHubs[v].length + this.inHubs[v].length;
+
+		return total / (2.0 * this.V);
+	}
+
+	/**
+	 * Writes the index to a file so it can be shipped with the graph.
+	 * @see PrunedLandmarkLabeling#read(File)
+	 * @param output The file to write.
+	 * @throws IOException If the file can't be written.
+	 */
+	public void write(File output) throws IOException{
+		ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(output), 1 << 16));
+		try {
+			out.writeObject(this);
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Reads an index written with write.
+	 * @see PrunedLandmarkLabeling#write(File)
+	 * @param input The file to read.
+	 * @return PrunedLandmarkLabeling
+	 * @throws IOException If the file can't be read or does not hold an index.
+	 */
+	public static PrunedLandmarkLabeling read(File input) throws IOException{
+		ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(input), 1 << 16));
+		try {
+			return (PrunedLandmarkLabeling)in.readObject();
+		}
+		catch(ClassNotFoundException e){
+			throw new IOException("File does not hold a PrunedLandmarkLabeling", e);
+		}
+		catch(ClassCastException e){
+			throw new IOException("File does not hold a PrunedLandmarkLabeling", e);
+		}
+		finally {
+			in.close();
+		}
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Runs the BFS of hub r, adding (rank, depth) to the label of every vertex it does not prune.
+	 * @param forward True to follow outgoing edges; false to follow incoming edges.
+	 * @param rootDistance The distance through each hub rank from the other label of r, INFINITY where r has no such hub.
+	 */
+	private static void prunedSearch(CSRGraph g, int r, int rank, boolean forward, int[] rootDistance,
+			HubLabel label, int[] depth, int[] queue){
+
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = r;
+		depth[r] = 0;
+
+		while(head < tail){
+			int u = queue[head++];
+			int d = depth[u];
+
+			//Case: the labels built so far already give a path of length d
+			if(label.covers(u, d, rootDistance)) continue;
+
+			label.add(u, rank, d);
+
+			int[] offsets = forward ? g.outOffsets : g.inOffsets;
+			int[] ends = forward ? g.outTargets : g.inSources;
+			for(int k = offsets[u]; k < offsets[u + 1]; k++){
+				int w = ends[k];
+				if(depth[w] != -1) continue;
+
+				depth[w] = d + 1;
+				queue[tail++] = w;
+			}
+		}
+
+		// Only the vertices this search touched are reset
+		for(int i = 0; i < tail; i++) depth[queue[i]] = -1;
+	}
+
+	/**
+	 * Growable hub and distance lists for one side of every vertex while the index is built.
+	 */
+	private static class HubLabel {
+
+		private final int[][] hubs;
+		private final int[][] distances;
+		private final int[] size;
+
+		HubLabel(int n){
+			this.hubs = new int[n][];
+			this.distances = new int[n][];
+			this.size = new int[n];
+
+			for(int v = 0; v < n; v++){
+				this.hubs[v] = new int[4];
+				this.distances[v] = new int[4];
+			}
+		}
+
+		void add(int v, int hub, int distance){
+			if(this.size[v] == this.hubs[v].length){
+				this.hubs[v] = Arrays.copyOf(this.hubs[v], 2*this.size[v]);
+				this.distances[v] = Arrays.copyOf(this.distances[v], 2*this.size[v]);
+			}
+
+			this.hubs[v][this.size[v]] = hub;
+			this.distances[v][this.size[v]++] = distance;
+		}
+
+		/**
+		 * Determines whether some hub of v plus the root's distance through that hub is at most d.
+		 */
+		boolean covers(int v, int d, int[] rootDistance){
+			int[] h = this.hubs[v];
+			int[] dist = this.distances[v];
+
+			for(int i = 0; i < this.size[v]; i++){
+				int through = rootDistance[h[i]];
+				if(through != INFINITY && through + dist[i] <= d) return true;
+			}
+
+			return false;
+		}
+
+		/**
+		 * Spreads the other side's label of r into rootDistance, indexed by hub rank.
+		 */
+		void load(HubLabel other, int r, int[] rootDistance){
+			for(int i = 0; i < other.size[r]; i++) rootDistance[other.hubs[r][i]] = other.distances[r][i];
+		}
+
+		void unload(HubLabel other, int r, int[] rootDistance){
+			for(int i = 0; i < other.size[r]; i++) rootDistance[other.hubs[r][i]] = INFINITY;
+		}
+
+		int[][] trimmedHubs(){
+			int[][] t = new int[this.hubs.length][];
+			for(int v = 0; v < t.length; v++) t[v] = Arrays.copyOf(this.hubs[v], this.size[v]);
+			return t;
+		}
+
+		int[][] trimmedDistances(){
+			int[][] t = new int[this.distances.length][];
+			for(int v = 0; v < t.length; v++) t[v] = Arrays.copyOf(this.distances[v], this.size[v]);
+			return t;
+		}
+	}
+
+}
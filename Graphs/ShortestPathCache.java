@@ -0,0 +1,310 @@
+
+
+import java.util.InputMismatchException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * A cache of single source shortest paths for the hot sources of a graph.
+ * The ShortestPathResult of each source is computed on a CSRGraph snapshot, with Dijkstra's algorithm or with
+ * BellmanFord's when the graph has negative weights, and kept in least recently used order until the memory budget is spent.
+ * The cache listens to its graph: inserting or removing an edge or a vertex, or changing a weight, drops every entry and the snapshot.
+ * The counters are meant for sizing the budget.
+ * @version 1.0
+ * @see Graph#DijkstraShortestPaths(Vertex)
+ * @see Graph#BellmanFordShortestPaths(Vertex)
+ * @see ShortestPathResult
+ *
+ */
+public class ShortestPathCache implements GraphListener {
+
+	/**
+	 * The graph the paths are computed on.
+	 */
+	private Graph graph;
+
+	/**
+	 * The snapshot of the graph the entries were computed on, or null if it has changed since.
+	 */
+	private CSRGraph snapshot;
+
+	/**
+	 * Whether the snapshot has a negative weight edge, in which case BellmanFord's algorithm is used.
+	 */
+	private boolean negativeWeights;
+
+	/**
+	 * The paths (value) from each source id (key), least recently used first.
+	 */
+	private LinkedHashMap<Integer,ShortestPathResult> entries;
+
+	/**
+	 * The largest number of bytes the entries may take.
+	 */
+	private long maxBytes;
+
+	/**
+	 * The estimated number of bytes the entries take.
+	 */
+	private long bytes;
+
+	/**
+	 * The lookups answered from the cache and the lookups that ran a search.
+	 */
+	private long hits, misses;
+
+	/**
+	 * The entries dropped for the budget and the times the graph changed under the cache.
+	 */
+	private long evictions, invalidations;
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructs an empty cache for g and registers itself as a listener of g.
+	 * @see ShortestPathCache#detach()
+	 * @param g The graph the paths are computed on.
+	 * @param maxBytes The memory budget of the cached arrays, in bytes.
+	 */
+	public ShortestPathCache(Graph g, long maxBytes){
+		if(g == null) throw new NullPointerException("Can't cache the paths of a null graph");
+		if(maxBytes < 0) throw new IllegalArgumentException("The memory budget can't be negative");
+
+		this.graph = g;
+		this.maxBytes = maxBytes;
+		this.entries = new LinkedHashMap<Integer,ShortestPathResult>(16, 0.75f, true);
+
+		g.addGraphListener(this);
+	}
+
+	/**
+	 * Stops following the changes of the graph and empties the cache.
+	 */
+	public synchronized void detach(){
+		this.graph.removeGraphListener(this);
+		this.invalidate();
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the shortest paths from s, over the vertex ids of snapshot(). The result is shared with the cache and must not be changed.
+	 * @param s The vertex the paths start at.
+	 * @return ShortestPathResult
+	 */
+	public synchronized ShortestPathResult get(Vertex s){
+		return this.entryOf(s);
+	}
+
+	/**
+	 * Returns the length of the shortest path from s to v.
+	 * @param s The vertex the path starts at.
+	 * @param v The vertex the path ends at.
+	 * @return The length, or Integer.MAX_VALUE if v can't be reached from s.
+	 */
+	public synchronized int distance(Vertex s, Vertex v){
+		return this.entryOf(s).distanceTo(v);
+	}
+
+	/**
+	 * Returns the last edge on the shortest path from s to v.
+	 * @param s The vertex the path starts at.
+	 * @param v The vertex the path ends at.
+	 * @return The edge, or null if v is s or can't be reached from s.
+	 */
+	public synchronized Edge parentEdge(Vertex s, Vertex v){
+		return this.entryOf(s).parentEdgeOf(v);
+	}
+
+	/**
+	 * Returns the lengths of the shortest paths from s, indexed by the ids of snapshot(). The array is shared with the cache
+	 * and must not be changed.
+	 * @param s The vertex the paths start at.
+	 * @return int[]
+	 */
+	public synchronized int[] distances(Vertex s){
+		return this.entryOf(s).dist;
+	}
+
+	/**
+	 * Returns the snapshot whose vertex ids index the cached arrays, taking a new one if the graph has changed.
+	 * @return CSRGraph
+	 */
+	public synchronized CSRGraph snapshot(){
+		if(this.snapshot == null){
+			this.snapshot = new CSRGraph(this.graph);
+			this.negativeWeights = false;
+			for(int w : this.snapshot.outWeights) if(w < 0) this.negativeWeights = true;
+		}
+
+		return this.snapshot;
+	}
+
+	/**
+	 * Drops every entry and the snapshot.
+	 */
+	public synchronized void invalidate(){
+		if(!this.entries.isEmpty() || this.snapshot != null) this.invalidations++;
+
+		this.entries.clear();
+		this.bytes = 0;
+		this.snapshot = null;
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the number of sources currently cached.
+	 */
+	public synchronized int size(){
+		return this.entries.size();
+	}
+
+	/**
+	 * Returns the estimated number of bytes the cached arrays take.
+	 */
+	public synchronized long bytes(){
+		return this.bytes;
+	}
+
+	/**
+	 * Returns the number of lookups answered from the cache.
+	 */
+	public synchronized long hits(){
+		return this.hits;
+	}
+
+	/**
+	 * Returns the number of lookups that had to run a search.
+	 */
+	public synchronized long misses(){
+		return this.misses;
+	}
+
+	/**
+	 * Returns the number of entries dropped to stay within the memory budget.
+	 */
+	public synchronized long evictions(){
+		return this.evictions;
+	}
+
+	/**
+	 * Returns the number of times the cache was emptied because the graph changed.
+	 */
+	public synchronized long invalidations(){
+		return this.invalidations;
+	}
+
+	/**
+	 * Returns the fraction of lookups answered from the cache, 0 if there were none.
+	 * @return double
+	 */
+	public synchronized double hitRate(){
+		long lookups = this.hits + this.misses;
+		return lookups == 0 ? 0 : this.hits / (double)lookups;
+	}
+
+	/**
+	 * Returns a string with the number of sources cached, the bytes used and the hit rate boxed up in brackets.
+	 * @return String
+	 */
+	public synchronized String toString(){
+		return "ShortestPathCache: [N="+this.entries.size()+"][B="+this.bytes+"/"+this.maxBytes+"][H="+this.hitRate()+"]";
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	public synchronized void vertexInserted(Graph g, Vertex v){
+		this.invalidate();
+	}
+
+	public synchronized void edgeInserted(Graph g, Edge e){
+		this.invalidate();
+	}
+
+	public synchronized void edgeRemoved(Graph g, Edge e){
+		this.invalidate();
+	}
+
+	public synchronized void weightChanged(Graph g, Edge e, int oldWeight){
+		this.invalidate();
+	}
+
+	public synchronized void vertexRemoved(Graph g, Vertex v){
+		this.invalidate();
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the cached paths from s, running the search and evicting the least recently used entries on a miss.
+	 */
+	private ShortestPathResult entryOf(Vertex s){
+		CSRGraph g = this.snapshot();
+		int i = g.indexOf(s);
+		if(i < 0) throw new InputMismatchException("Vertex is not in the graph");
+
+		ShortestPathResult entry = this.entries.get(i);
+		if(entry != null){
+			this.hits++;
+			return entry;
+		}
+
+		this.misses++;
+		if(this.negativeWeights) entry = g.BellmanFordShortestPathResult(i);
+		else {
+			try {
+				entry = g.DijkstraShortestPathResult(i);
+			} catch (DijkstraNegativeWeightEdge ex) {
+				// Can't happen, the snapshot was checked for negative weights
+				throw new IllegalStateException(ex);
+			}
+		}
+
+		long size = ShortestPathCache.bytesOf(entry);
+		if(size > this.maxBytes) return entry;
+
+		Iterator<Map.Entry<Integer,ShortestPathResult>> lru = this.entries.entrySet().iterator();
+		while(this.bytes + size > this.maxBytes){
+			ShortestPathResult evicted = lru.next().getValue();
+			lru.remove();
+			this.bytes -= ShortestPathCache.bytesOf(evicted);
+			this.evictions++;
+		}
+
+		this.entries.put(i, entry);
+		this.bytes += size;
+
+		return entry;
+	}
+
+	/**
+	 * Estimates the bytes of an entry: the two arrays of the result plus the result and map entry objects.
+	 */
+	private static long bytesOf(ShortestPathResult r){
+		return r.bytes() + 24 + 64;
+	}
+
+}
@@ -0,0 +1,173 @@
+
+
+import java.util.ArrayList;
+import java.util.InputMismatchException;
+
+
+/**
+ * The result of a single source shortest path search over a CSRGraph: the distance and last edge of the shortest path to every vertex id.
+ * Two int arrays replace the Hashtable of boxed distances and the Graph holding the shortest path tree; paths are only built
+ * when pathTo walks the parent edges back to the source.
+ * @version 1.0
+ * @see Graph#DijkstraShortestPathResult(Vertex)
+ * @see Graph#BellmanFordShortestPathResult(Vertex)
+ *
+ */
+public class ShortestPathResult {
+
+	/**
+	 * The graph that was searched. Graph#DijkstraShortestPathResult(Vertex) and Graph#BellmanFordShortestPathResult(Vertex)
+	 * share one snapshot between all their results, so it is not paid for again by each one.
+	 */
+	public final CSRGraph graph;
+
+	/**
+	 * The id of the vertex the paths start at.
+	 */
+	public final int source;
+
+	/**
+	 * The length of the shortest path from the source to each vertex, or Integer.MAX_VALUE if the vertex can't be reached.
+	 */
+	public final int[] dist;
+
+	/**
+	 * The outgoing slot of the last edge on the shortest path to each vertex, or -1 for the source and vertices that can't be reached.
+	 */
+	public final int[] parentEdge;
+
+	/**
+	 * Constructs an empty result to be filled by a search.
+	 * @param graph The graph being searched.
+	 * @param source The id of the starting vertex.
+	 */
+	public ShortestPathResult(CSRGraph graph, int source){
+		if(source < 0 || source >= graph.V) throw new IndexOutOfBoundsException("Vertex id "+source+" is not in the graph");
+
+		this.graph = graph;
+		this.source = source;
+		this.dist = new int[graph.V];
+		this.parentEdge = new int[graph.V];
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the length of the shortest path from the source to v.
+	 * @param v The id of a vertex.
+	 * @return The length or Integer.MAX_VALUE if v can't be reached.
+	 */
+	public int distanceTo(int v){
+		return this.dist[v];
+	}
+
+	/**
+	 * Returns the length of the shortest path from the source to v.
+	 * @param v A vertex of the graph that was searched.
+	 * @return The length or Integer.MAX_VALUE if v can't be reached.
+	 */
+	public int distanceTo(Vertex v){
+		return this.dist[this.idOf(v)];
+	}
+
+	/**
+	 * Determines whether there is a path from the source to v.
+	 * @param v The id of a vertex.
+	 * @return boolean
+	 */
+	public boolean hasPathTo(int v){
+		return this.dist[v] != Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Returns the last edge on the shortest path from the source to v.
+	 * @param v A vertex of the graph that was searched.
+	 * @return The edge or null if v is the source or can't be reached.
+	 */
+	public Edge parentEdgeOf(Vertex v){
+		int k = this.parentEdge[this.idOf(v)];
+		return k < 0 ? null : this.graph.edge(k);
+	}
+
+	/**
+	 * Returns the ids of the vertices on the shortest path from the source to v, both included.
+	 * @param v The id of a vertex.
+	 * @return The path or null if v can't be reached.
+	 * @throws IllegalStateException If the parents loop, which a negative cycle can leave behind.
+	 */
+	public int[] pathTo(int v){
+		if(this.dist[v] == Integer.MAX_VALUE) return null;
+
+		int n = 1;
+		for(int u = v; u != this.source; n++){
+			if(n > this.graph.V) throw new IllegalStateException("The parent edges contain a cycle");
+			u = this.tailOf(this.parentEdge[u]);
+		}
+
+		int[] path = new int[n];
+		for(int i = n - 1, u = v; i >= 0; i--){
+			path[i] = u;
+			if(u != this.source) u = this.tailOf(this.parentEdge[u]);
+		}
+
+		return path;
+	}
+
+	/**
+	 * Returns the vertices on the shortest path from the source to v, both included.
+	 * @param v A vertex of the graph that was searched.
+	 * @return The path or null if v can't be reached.
+	 * @throws IllegalStateException If the parents loop, which a negative cycle can leave behind.
+	 */
+	public ArrayList<Vertex> pathTo(Vertex v){
+		int[] ids = this.pathTo(this.idOf(v));
+		if(ids == null) return null;
+
+		ArrayList<Vertex> path = new ArrayList<Vertex>(ids.length);
+		for(int u : ids) path.add(this.graph.vertex(u));
+
+		return path;
+	}
+
+	/**
+	 * Returns the number of bytes taken by the two arrays, headers included.
+	 * @return long
+	 */
+	public long bytes(){
+		return 2*(16 + 4L*this.dist.length);
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	private int idOf(Vertex v){
+		int i = this.graph.indexOf(v);
+		if(i < 0) throw new InputMismatchException("Vertex is not in the graph");
+		return i;
+	}
+
+	/**
+	 * Returns the id of the vertex the outgoing slot k leaves from, by binary search over the offsets.
+	 */
+	private int tailOf(int k){
+		int[] offsets = this.graph.outOffsets;
+		int lo = 0, hi = this.graph.V - 1;
+
+		// The last vertex whose first slot is at most k, skipping those without outgoing edges
+		while(lo < hi){
+			int mid = (lo + hi + 1) >>> 1;
+			if(offsets[mid] <= k) lo = mid;
+			else hi = mid - 1;
+		}
+
+		return lo;
+	}
+
+}
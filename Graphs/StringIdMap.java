@@ -0,0 +1,162 @@
+
+
+import java.util.Arrays;
+
+
+/**
+ * Maps external String keys to the dense ids 0, 1, 2, ... in the order the keys are added, and back.
+ * The keys live in an open addressing table with linear probing over a String and an int array, with no entry objects and no boxed ids.
+ * Keys can't be removed.
+ * @version 1.0
+ * @see LongIdMap
+ * @see Graph#insertVertex(String)
+ *
+ */
+public class StringIdMap {
+
+	/**
+	 * The most keys a map holds: the table is kept at most half full and has at most 2^30 slots.
+	 */
+	public static final int MAX_KEYS = 1 << 29;
+
+	/**
+	 * The key stored in each slot of the table, or null for an empty slot.
+	 */
+	private String[] table;
+
+	/**
+	 * The id of the key in each slot.
+	 */
+	private int[] ids;
+
+	/**
+	 * The key of each id.
+	 */
+	private String[] keys;
+
+	/**
+	 * The number of keys.
+	 */
+	private int size;
+
+	/**
+	 * Constructs an empty map.
+	 */
+	public StringIdMap(){
+		this(16);
+	}
+
+	/**
+	 * Constructs an empty map sized for the expected number of keys.
+	 * @param expected The number of keys that will be added, at most MAX_KEYS.
+	 */
+	public StringIdMap(int expected){
+		if(expected < 0) throw new IllegalArgumentException("Expected size can't be negative");
+		if(expected > MAX_KEYS) throw new IllegalArgumentException("A map holds at most "+MAX_KEYS+" keys");
+
+		int capacity = Integer.highestOneBit(Math.max(8, expected) * 2 - 1) << 1;
+		this.table = new String[capacity];
+		this.ids = new int[capacity];
+		this.keys = new String[Math.max(8, expected)];
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the number of keys.
+	 */
+	public int size(){
+		return this.size;
+	}
+
+	/**
+	 * Returns the id of the key.
+	 * @param key An external key.
+	 * @return The id or -1 if the key was never added.
+	 */
+	public int get(String key){
+		if(key == null) throw new NullPointerException("Key can't be null");
+		int mask = this.table.length - 1;
+
+		for(int i = StringIdMap.hash(key) & mask; this.table[i] != null; i = (i + 1) & mask)
+			if(this.table[i].equals(key)) return this.ids[i];
+
+		return -1;
+	}
+
+	/**
+	 * Returns the id of the key, giving it the next id if it is new.
+	 * @param key An external key.
+	 * @return int
+	 */
+	public int add(String key){
+		if(key == null) throw new NullPointerException("Key can't be null");
+		int mask = this.table.length - 1;
+		int i = StringIdMap.hash(key) & mask;
+
+		for(; this.table[i] != null; i = (i + 1) & mask)
+			if(this.table[i].equals(key)) return this.ids[i];
+
+		if(this.size == MAX_KEYS) throw new IllegalStateException("A map holds at most "+MAX_KEYS+" keys");
+
+		int id = this.size++;
+		this.table[i] = key;
+		this.ids[i] = id;
+
+		if(id == this.keys.length) this.keys = Arrays.copyOf(this.keys, (int)Math.min(MAX_KEYS, 2L*id));
+		this.keys[id] = key;
+
+		// Half full at most keeps the probe sequences short
+		if(2L*this.size > this.table.length) this.rehash();
+
+		return id;
+	}
+
+	/**
+	 * Returns the key of the id.
+	 * @param id An id given by add.
+	 * @return String
+	 */
+	public String keyOf(int id){
+		if(id < 0 || id >= this.size) throw new IndexOutOfBoundsException("Id "+id+" was never given");
+		return this.keys[id];
+	}
+
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+///////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Doubles the table. add stops at MAX_KEYS, so the table never grows past 2^30 slots.
+	 */
+	private void rehash(){
+		int capacity = 2*this.table.length;
+		int mask = capacity - 1;
+		this.table = new String[capacity];
+		this.ids = new int[capacity];
+
+		for(int id = 0; id < this.size; id++){
+			String key = this.keys[id];
+			int i = StringIdMap.hash(key) & mask;
+			while(this.table[i] != null) i = (i + 1) & mask;
+
+			this.table[i] = key;
+			this.ids[i] = id;
+		}
+	}
+
+	/**
+	 * Spreads the bits of String.hashCode, whose low bits alone cluster for similar keys.
+	 */
+	private static int hash(String key){
+		int h = key.hashCode() * 0x9e3779b9;
+		return h ^ (h >>> 16);
+	}
+
+}
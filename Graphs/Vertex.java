@@ -47,6 +47,18 @@ public class Vertex {
 		this.name = number++;
 	}
 
+	/**
+	 * Constructs a vertex with the given name instead of one from the counter shared by every graph.
+	 * The ArrayLists in and out are initialized and empty.
+	 * @see Graph#insertVertex()
+	 * @param name an integer representative of a name which must be unique within its graph.
+	 */
+	public Vertex(int name){
+		this.in = new ArrayList<Edge>();
+		this.out = new ArrayList<Edge>();
+		this.name = name;
+	}
+
 ///////////////////////////////////////////////////////////////////////////////
 ///////////////////////////////////////////////////////////////////////////////
 ///////////////////////////////////////////////////////////////////////////////